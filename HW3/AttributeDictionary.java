@@ -0,0 +1,218 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The AttributeDictionary class maps the attributes
+ * of a relation, written as names or as numbers, to
+ * dense ids 0 to size() - 1. All of the synthesis runs
+ * on the ids, so a file that mentions attribute 1000000
+ * only pays for the attributes it really uses, and the
+ * names come back when the relations are printed.
+ *
+ * A dictionary of names keeps its ids in the order
+ * the names were declared, and prints in that order.
+ * A dictionary of numbers gives the numbers found in
+ * the FDs the first ids, in ascending order, and the
+ * numbers that are only in the relation the ids after
+ * them, and prints in ascending numeric order.
+ */
+
+public class AttributeDictionary {
+
+    // name of each id, for a dictionary of names
+    private final ArrayList<String> names;
+    // id of each name, for a dictionary of names
+    private final HashMap<String, Integer> ids;
+    // number of each id, for a dictionary of numbers;
+    // ids below mentioned and ids from mentioned on are
+    // two runs of ascending numbers
+    private final int[] numbers;
+    // number of ids given to numbers found in the FDs
+    private final int mentioned;
+    // true if the numbers ascend with the ids all the way
+    private final boolean ascending;
+
+    /**
+     * Creates an empty dictionary of names.
+     */
+    public AttributeDictionary() {
+        names = new ArrayList<String>();
+        ids = new HashMap<String, Integer>();
+        numbers = null;
+        mentioned = 0;
+        ascending = true;
+    }
+
+    // dictionary of numbers, see numbered
+    private AttributeDictionary(int[] numbers, int mentioned) {
+        this.names = null;
+        this.ids = null;
+        this.numbers = numbers;
+        this.mentioned = mentioned;
+        this.ascending = mentioned == 0 || mentioned == numbers.length
+                || numbers[mentioned - 1] < numbers[mentioned];
+    }
+
+    /**
+     * The numbered method builds the dictionary of
+     * a file of numbered attributes with no header and
+     * renumbers the FDs in the store to dense ids.
+     * As in the original program, the relation holds
+     * every number from 1 up to the largest number in
+     * the FDs, or up to the number of distinct attributes
+     * if that is larger, plus the numbers in the FDs.
+     *
+     * @param store FDs written with attribute numbers, renumbered in place
+     * @return the dictionary
+     */
+    public static AttributeDictionary numbered(FDStore store) {
+        // the distinct numbers in the FDs, in ascending order
+        int[] found = new int[store.attributeCount()];
+        for (int k = 0; k < found.length; k++) {
+            found[k] = store.attribute(k);
+        }
+        Arrays.sort(found);
+        int distinct = 0;
+        for (int k = 0; k < found.length; k++) {
+            if (k == 0 || found[k] != found[distinct - 1]) {
+                found[distinct++] = found[k];
+            }
+        }
+        int[] mentioned = Arrays.copyOf(found, distinct);
+
+        // numbers the relation holds without any FD mentioning them
+        int max = distinct == 0 ? 0 : Math.max(distinct, mentioned[distinct - 1]);
+        int[] numbers = Arrays.copyOf(mentioned, distinct + max);
+        int count = distinct;
+        for (int n = 1; n <= max; n++) {
+            if (Arrays.binarySearch(mentioned, n) < 0) {
+                numbers[count++] = n;
+            }
+        }
+
+        store.renumber(a -> Arrays.binarySearch(mentioned, a));
+        return new AttributeDictionary(Arrays.copyOf(numbers, count), distinct);
+    }
+
+    /**
+     * The intern method returns the id of a name,
+     * giving it the next id if it is new.
+     *
+     * @param name name of the attribute
+     * @return its id
+     */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            ids.put(name, id);
+            names.add(name);
+        }
+        return id;
+    }
+
+    /**
+     * The id method looks up the id of a name.
+     *
+     * @param name name of the attribute
+     * @return its id, or -1 if it is not in the dictionary
+     */
+    public int id(String name) {
+        if (numbers != null) {
+            int number;
+            try {
+                number = Integer.parseInt(name);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+            // look in both runs of ascending numbers
+            int id = Arrays.binarySearch(numbers, 0, mentioned, number);
+            if (id < 0) {
+                id = Arrays.binarySearch(numbers, mentioned, numbers.length, number);
+            }
+            return id >= 0 ? id : -1;
+        }
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id id of an attribute
+     * @return the name of the attribute
+     */
+    public String name(int id) {
+        return numbers != null ? Integer.toString(numbers[id]) : names.get(id);
+    }
+
+    /**
+     * @return true if the attributes are numbers, false if they are names
+     */
+    public boolean isNumbered() {
+        return numbers != null;
+    }
+
+    /**
+     * @param id id of an attribute of a dictionary of numbers
+     * @return the number of the attribute
+     */
+    public int number(int id) {
+        return numbers[id];
+    }
+
+    /**
+     * @return number of attributes in the relation
+     */
+    public int size() {
+        return numbers != null ? numbers.length : names.size();
+    }
+
+    /**
+     * @return the ids of every attribute of the relation
+     */
+    public AttributeSet relation() {
+        AttributeSet relation = new AttributeSet(size());
+        relation.addRange(0, size());
+        return relation;
+    }
+
+    /**
+     * The appendAttributes method writes the names
+     * of a set of attributes, delimited by comma,
+     * in the order of the dictionary.
+     *
+     * @param attributes ids of the attributes
+     * @param sb         string builder to append to
+     */
+    public void appendAttributes(AttributeSet attributes, StringBuilder sb) {
+        if (numbers != null && !ascending) {
+            // ids of numbers that are only in the relation come
+            // after the others, so sort the numbers themselves
+            int[] sorted = attributes.toArray();
+            for (int k = 0; k < sorted.length; k++) {
+                sorted[k] = numbers[sorted[k]];
+            }
+            Arrays.sort(sorted);
+            for (int k = 0; k < sorted.length; k++) {
+                if (k > 0) {
+                    sb.append(',');
+                }
+                sb.append(sorted[k]);
+            }
+            return;
+        }
+        // ids are already in printing order
+        boolean first = true;
+        for (int a = attributes.nextAttribute(0); a >= 0; a = attributes.nextAttribute(a + 1)) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            if (numbers != null) {
+                sb.append(numbers[a]);
+            } else {
+                sb.append(names.get(a));
+            }
+        }
+    }
+}
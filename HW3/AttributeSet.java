@@ -0,0 +1,375 @@
+import java.util.Arrays;
+
+/**
+ * The AttributeSet class is
+ * a set of non-negative integer attributes
+ * stored as bits in an array of long words.
+ * Subset tests, unions, differences and equality
+ * are carried out word by word, so no attribute
+ * is ever boxed or hashed on its own.
+ */
+
+public class AttributeSet {
+
+    // number of bits in one word
+    private static final int WORD_BITS = 64;
+    // shared empty word array for new sets
+    private static final long[] EMPTY = new long[0];
+
+    // words holding the attribute bits,
+    // attribute a lives in bit (a % 64) of word (a / 64)
+    private long[] words;
+
+    /**
+     * Creates an empty attribute set.
+     */
+    public AttributeSet() {
+        words = EMPTY;
+    }
+
+    /**
+     * Creates an empty attribute set with room
+     * for attributes 0 to capacity - 1.
+     *
+     * @param capacity number of attributes to reserve room for
+     */
+    public AttributeSet(int capacity) {
+        words = capacity > 0 ? new long[wordIndex(capacity - 1) + 1] : EMPTY;
+    }
+
+    /**
+     * Creates a copy of the given attribute set.
+     *
+     * @param other set to copy
+     */
+    public AttributeSet(AttributeSet other) {
+        // only copy the words that hold set bits
+        words = Arrays.copyOf(other.words, other.usedWords());
+    }
+
+    /**
+     * Creates an attribute set holding every
+     * attribute in the given array.
+     *
+     * @param attributes attributes to add
+     * @return the new set
+     */
+    public static AttributeSet of(int... attributes) {
+        AttributeSet set = new AttributeSet();
+        for (int a : attributes) {
+            set.add(a);
+        }
+        return set;
+    }
+
+    /**
+     * Adds one attribute to the set.
+     *
+     * @param attribute attribute to add
+     * @return true if the attribute was not in the set before
+     */
+    public boolean add(int attribute) {
+        int w = wordIndex(attribute);
+        ensureWords(w + 1);
+        long bit = 1L << attribute;
+        boolean added = (words[w] & bit) == 0;
+        words[w] |= bit;
+        return added;
+    }
+
+    /**
+     * Removes one attribute from the set.
+     *
+     * @param attribute attribute to remove
+     * @return true if the attribute was in the set before
+     */
+    public boolean remove(int attribute) {
+        int w = wordIndex(attribute);
+        if (w >= words.length) {
+            return false;
+        }
+        long bit = 1L << attribute;
+        boolean removed = (words[w] & bit) != 0;
+        words[w] &= ~bit;
+        return removed;
+    }
+
+    /**
+     * Checks whether an attribute is in the set.
+     *
+     * @param attribute attribute to look for
+     * @return true if the attribute is in the set
+     */
+    public boolean contains(int attribute) {
+        int w = wordIndex(attribute);
+        return w < words.length && (words[w] & (1L << attribute)) != 0;
+    }
+
+    /**
+     * Adds every attribute from one attribute
+     * up to, but not including, another.
+     *
+     * @param from first attribute to add
+     * @param to   one past the last attribute to add
+     */
+    public void addRange(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int first = wordIndex(from);
+        int last = wordIndex(to - 1);
+        ensureWords(last + 1);
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            words[first] |= firstMask & lastMask;
+            return;
+        }
+        words[first] |= firstMask;
+        for (int w = first + 1; w < last; w++) {
+            words[w] = -1L;
+        }
+        words[last] |= lastMask;
+    }
+
+    /**
+     * Adds every attribute of another set to this set.
+     *
+     * @param other set whose attributes are added
+     * @return true if this set changed
+     */
+    public boolean addAll(AttributeSet other) {
+        int n = other.usedWords();
+        ensureWords(n);
+        long changed = 0;
+        for (int w = 0; w < n; w++) {
+            long before = words[w];
+            words[w] = before | other.words[w];
+            changed |= words[w] ^ before;
+        }
+        return changed != 0;
+    }
+
+    /**
+     * Removes every attribute of another set from this set.
+     *
+     * @param other set whose attributes are removed
+     * @return true if this set changed
+     */
+    public boolean removeAll(AttributeSet other) {
+        int n = Math.min(words.length, other.words.length);
+        long changed = 0;
+        for (int w = 0; w < n; w++) {
+            changed |= words[w] & other.words[w];
+            words[w] &= ~other.words[w];
+        }
+        return changed != 0;
+    }
+
+    /**
+     * Keeps only the attributes that are
+     * also in another set.
+     *
+     * @param other set to intersect with
+     * @return true if this set changed
+     */
+    public boolean retainAll(AttributeSet other) {
+        long changed = 0;
+        for (int w = 0; w < words.length; w++) {
+            long keep = w < other.words.length ? other.words[w] : 0;
+            changed |= words[w] & ~keep;
+            words[w] &= keep;
+        }
+        return changed != 0;
+    }
+
+    /**
+     * Checks whether every attribute of
+     * another set is also in this set.
+     *
+     * @param other the possible subset
+     * @return true if other is a subset of this set
+     */
+    public boolean containsAll(AttributeSet other) {
+        int n = other.words.length;
+        for (int w = 0; w < n; w++) {
+            long mine = w < words.length ? words[w] : 0;
+            if ((other.words[w] & ~mine) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether this set shares
+     * at least one attribute with another set.
+     *
+     * @param other set to compare with
+     * @return true if the sets are not disjoint
+     */
+    public boolean intersects(AttributeSet other) {
+        int n = Math.min(words.length, other.words.length);
+        for (int w = 0; w < n; w++) {
+            if ((words[w] & other.words[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the attributes in the set.
+     *
+     * @return number of attributes
+     */
+    public int size() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether the set has no attributes.
+     *
+     * @return true if the set is empty
+     */
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the smallest attribute in the set
+     * that is greater than or equal to from.
+     * Attributes are visited in ascending order with
+     * for (int a = s.nextAttribute(0); a >= 0; a = s.nextAttribute(a + 1)).
+     *
+     * @param from attribute to start looking at
+     * @return the next attribute, or -1 if there is none
+     */
+    public int nextAttribute(int from) {
+        int w = wordIndex(from);
+        if (w >= words.length) {
+            return -1;
+        }
+        long word = words[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return w * WORD_BITS + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == words.length) {
+                return -1;
+            }
+            word = words[w];
+        }
+    }
+
+    /**
+     * Finds the largest attribute in the set.
+     *
+     * @return the largest attribute, or -1 if the set is empty
+     */
+    public int last() {
+        int n = usedWords();
+        if (n == 0) {
+            return -1;
+        }
+        return (n - 1) * WORD_BITS + (WORD_BITS - 1 - Long.numberOfLeadingZeros(words[n - 1]));
+    }
+
+    /**
+     * Removes every attribute from the set.
+     */
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    /**
+     * Copies the attributes into an array
+     * sorted in ascending order.
+     *
+     * @return sorted array of attributes
+     */
+    public int[] toArray() {
+        int[] out = new int[size()];
+        int i = 0;
+        for (int a = nextAttribute(0); a >= 0; a = nextAttribute(a + 1)) {
+            out[i++] = a;
+        }
+        return out;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AttributeSet)) {
+            return false;
+        }
+        AttributeSet other = (AttributeSet) o;
+        int n = usedWords();
+        if (n != other.usedWords()) {
+            return false;
+        }
+        for (int w = 0; w < n; w++) {
+            if (words[w] != other.words[w]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        // same mixing as java.util.BitSet, trailing zero words are ignored
+        long h = 1234;
+        for (int w = usedWords(); --w >= 0;) {
+            h ^= words[w] * (w + 1);
+        }
+        return (int) ((h >> 32) ^ h);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int a = nextAttribute(0); a >= 0; a = nextAttribute(a + 1)) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append(a);
+        }
+        return sb.append('}').toString();
+    }
+
+    // index of the word holding the given attribute
+    private static int wordIndex(int attribute) {
+        if (attribute < 0) {
+            throw new IllegalArgumentException("negative attribute: " + attribute);
+        }
+        return attribute >>> 6;
+    }
+
+    // number of words up to and including the last non-zero word
+    private int usedWords() {
+        int n = words.length;
+        while (n > 0 && words[n - 1] == 0) {
+            n--;
+        }
+        return n;
+    }
+
+    // grow the word array so it holds at least n words
+    private void ensureWords(int n) {
+        if (words.length < n) {
+            words = Arrays.copyOf(words, Math.max(n, words.length * 2));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The BatchSynthesis class decomposes
+ * many text files of functional dependencies
+ * in one run of the program.
+ * Each file is an independent task on a bounded
+ * thread pool with its own SynthesisEngine.
+ * Results are written in input order, whatever
+ * order the tasks finish in.
+ */
+
+public class BatchSynthesis {
+
+    // line that starts the results of one file
+    static final String HEADER = "== ";
+
+    /**
+     * The run method decomposes every file named
+     * by the given path and prints the results.
+     * The path is either a directory, whose regular files
+     * are taken in name order, or a manifest file that
+     * names one FD file per line. Blank manifest lines and
+     * lines starting with # are skipped, and relative names
+     * are resolved against the manifest's directory.
+     *
+     * @param path    directory or manifest file
+     * @param threads number of worker threads
+     * @param out     stream for the per-file results
+     * @param err     stream for the throughput report
+     * @throws IOException if the directory or manifest cannot be read
+     */
+    public static void run(String path, int threads, PrintStream out, PrintStream err) throws IOException {
+        List<File> files = listFiles(new File(path));
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            // submit every file, then collect the results in order
+            List<Future<String>> results = new ArrayList<Future<String>>(files.size());
+            for (File file : files) {
+                results.add(pool.submit(() -> decompose(file)));
+            }
+            for (int i = 0; i < files.size(); i++) {
+                out.print(HEADER + files.get(i).getPath() + System.lineSeparator());
+                out.print(get(results.get(i)));
+            }
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        err.printf("%d files in %.3f s (%.1f files/s)%n", files.size(), seconds,
+                seconds > 0 ? files.size() / seconds : 0.0);
+    }
+
+    /**
+     * The decompose method runs the synthesis
+     * for one file and formats the result.
+     * A file that cannot be read or is in the
+     * wrong format gives ERROR! like a single run does,
+     * followed by the place of a format problem.
+     *
+     * @param file text file of FDs
+     * @return the relations, one per line
+     */
+    static String decompose(File file) {
+        try {
+            FDStore fds = ModifiedSynthesis.readFDs(file.getPath());
+            AttributeDictionary dictionary = fds.getDictionary();
+            SynthesisEngine engine = new SynthesisEngine(fds, dictionary.relation(),
+                    SynthesisEngine.DEFAULT_CACHE_SIZE);
+            // the files already keep every worker busy
+            engine.setComponentSplitting(false);
+            StringBuilder sb = new StringBuilder();
+            ModifiedSynthesis.appendRelations(engine.decompose(), dictionary, sb);
+            return sb.toString();
+        } catch (FDFormatException e) {
+            return "ERROR! " + e.getMessage() + System.lineSeparator();
+        } catch (IOException | IllegalArgumentException e) {
+            return "ERROR!" + System.lineSeparator();
+        }
+    }
+
+    // find the files named by a directory or a manifest
+    private static List<File> listFiles(File path) throws IOException {
+        List<File> files = new ArrayList<File>();
+        if (path.isDirectory()) {
+            File[] entries = path.listFiles(File::isFile);
+            if (entries == null) {
+                throw new IOException("cannot list " + path);
+            }
+            Arrays.sort(entries);
+            files.addAll(Arrays.asList(entries));
+            return files;
+        }
+
+        try (BufferedReader in = new BufferedReader(new FileReader(path))) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                File file = new File(line);
+                if (!file.isAbsolute()) {
+                    file = new File(path.getAbsoluteFile().getParentFile(), line);
+                }
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    // wait for one task, rethrowing what it threw
+    private static String get(Future<String> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a result", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
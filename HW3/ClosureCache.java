@@ -0,0 +1,156 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The ClosureCache class remembers
+ * closures that were already computed
+ * for the current set of functional dependencies (FDs).
+ * Entries are keyed by the starting attribute set
+ * and the version of the FD set, and the least
+ * recently used entry is evicted once the cache
+ * is full. Any change to the FDs must call
+ * invalidate, which moves to a new version
+ * and drops every entry of the old one.
+ */
+
+public class ClosureCache {
+
+    // most entries kept at the same time
+    private final int capacity;
+    // cached closures, in least recently used order
+    private final LinkedHashMap<Key, AttributeSet> entries;
+
+    // version of the FD set the entries belong to
+    private long version;
+    // lookups that found a cached closure
+    private long hits;
+    // lookups that had to compute the closure
+    private long misses;
+    // entries dropped because the cache was full
+    private long evictions;
+
+    /**
+     * Creates a cache that holds at most
+     * the given number of closures.
+     *
+     * @param capacity most entries kept, 0 turns caching off
+     */
+    public ClosureCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Key, AttributeSet>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, AttributeSet> eldest) {
+                if (size() > ClosureCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up the closure of a set of attributes.
+     * The returned set is owned by the cache
+     * and must not be changed.
+     *
+     * @param start set of attributes the closure was taken of
+     * @return the cached closure, or null if there is none
+     */
+    public AttributeSet get(AttributeSet start) {
+        AttributeSet closure = capacity > 0 ? entries.get(new Key(start, version)) : null;
+        if (closure != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return closure;
+    }
+
+    /**
+     * Stores the closure of a set of attributes
+     * for the current version of the FD set.
+     * Both sets are copied.
+     *
+     * @param start   set of attributes the closure was taken of
+     * @param closure the closure of start
+     */
+    public void put(AttributeSet start, AttributeSet closure) {
+        if (capacity > 0) {
+            entries.put(new Key(new AttributeSet(start), version), new AttributeSet(closure));
+        }
+    }
+
+    /**
+     * Marks every cached closure as out of date.
+     * Must be called whenever a LHS or RHS changes
+     * or an FD is added or removed.
+     */
+    public void invalidate() {
+        version++;
+        entries.clear();
+    }
+
+    /**
+     * @return number of lookups that found a cached closure
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of lookups that had to compute the closure
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of closures held right now
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of entries dropped because the cache was full
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public String toString() {
+        return "closure cache: " + hits + " hits, " + misses + " misses, "
+                + evictions + " evictions, " + entries.size() + "/" + capacity + " entries";
+    }
+
+    // starting attributes together with the FD set version
+    private static final class Key {
+        private final AttributeSet start;
+        private final long version;
+        private final int hash;
+
+        Key(AttributeSet start, long version) {
+            this.start = start;
+            this.version = version;
+            this.hash = 31 * start.hashCode() + Long.hashCode(version);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return version == other.version && start.equals(other.start);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+import java.util.Arrays;
+
+/**
+ * The ClosureEngine class computes
+ * attribute closures in time linear in the
+ * size of the functional dependencies (FDs),
+ * following Beeri and Bernstein.
+ * Each FD keeps a counter of LHS attributes
+ * that are already in the closure, and each
+ * attribute keeps the list of FDs whose LHS
+ * contains it. When an attribute joins the closure
+ * the counters of its FDs go up, and an FD whose
+ * counter reaches the size of its LHS adds its RHS.
+ * The counters live in work arrays of each thread
+ * and only the ones a closure touched are reset,
+ * so a closure costs time for the FDs it reaches,
+ * not for every FD there is.
+ *
+ * The engine is built once over an FDStore and
+ * follows later changes through disable and
+ * leftSideReduced, so FD indices stay the
+ * positions the store had when it was built.
+ * The attribute -> FD lists are flat int arrays
+ * with an offset table, like the store itself.
+ */
+
+public class ClosureEngine {
+
+    // the FDs
+    private final FDStore fds;
+    // number of attributes on the left hand side of each FD
+    private final int[] lhsCount;
+    // FDs that no longer take part in closures
+    private final boolean[] disabled;
+    // FDs whose LHS lost attributes since the index was built
+    private final boolean[] reduced;
+
+    // FDs whose LHS contains attribute a are
+    // index[indexStart[a]] to index[indexStart[a + 1] - 1]
+    private final int[] indexStart;
+    private final int[] index;
+    // one more than the largest attribute found in any FD
+    private final int universe;
+    // FDs with an empty left hand side
+    private final int[] emptyLeftSide;
+    // work arrays of each thread computing closures
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    // told about every closure, or null
+    private SynthesisListener listener;
+
+    /**
+     * Builds the engine over the FDs of a store.
+     * The store is not copied, so later changes to
+     * it must be reported through disable and
+     * leftSideReduced.
+     *
+     * @param fds the FDs
+     */
+    public ClosureEngine(FDStore fds) {
+        this.fds = fds;
+        int fdCount = fds.size();
+        this.lhsCount = new int[fdCount];
+        this.disabled = new boolean[fdCount];
+        this.reduced = new boolean[fdCount];
+
+        // find how many attributes we need room for
+        int max = -1;
+        for (int i = 0; i < fdCount; i++) {
+            if (fds.lhsEnd(i) > fds.lhsStart(i)) {
+                max = Math.max(max, fds.attribute(fds.lhsEnd(i) - 1));
+            }
+            max = Math.max(max, fds.attribute(fds.rhsEnd(i) - 1));
+        }
+        universe = max + 1;
+
+        // count how many FDs each attribute appears in
+        indexStart = new int[universe + 1];
+        for (int i = 0; i < fdCount; i++) {
+            for (int k = fds.lhsStart(i); k < fds.lhsEnd(i); k++) {
+                indexStart[fds.attribute(k) + 1]++;
+            }
+            lhsCount[i] = fds.lhsSize(i);
+        }
+        for (int a = 0; a < universe; a++) {
+            indexStart[a + 1] += indexStart[a];
+        }
+
+        // fill the attribute -> FD lists
+        index = new int[indexStart[universe]];
+        int[] fill = Arrays.copyOf(indexStart, universe);
+        int empty = 0;
+        for (int i = 0; i < fdCount; i++) {
+            for (int k = fds.lhsStart(i); k < fds.lhsEnd(i); k++) {
+                index[fill[fds.attribute(k)]++] = i;
+            }
+            if (lhsCount[i] == 0) {
+                empty++;
+            }
+        }
+        emptyLeftSide = new int[empty];
+        for (int i = 0, e = 0; i < fdCount; i++) {
+            if (lhsCount[i] == 0) {
+                emptyLeftSide[e++] = i;
+            }
+        }
+    }
+
+    /**
+     * Computes the closure of a set of attributes
+     * using every FD that is not disabled.
+     *
+     * @param start set of attributes to take the closure of
+     * @return a new set with the attributes in the closure
+     */
+    public AttributeSet closure(AttributeSet start) {
+        return closure(start, -1);
+    }
+
+    /**
+     * Computes the closure of a set of attributes
+     * without using the FD at position skip.
+     *
+     * @param start set of attributes to take the closure of
+     * @param skip  position of the FD to leave out, or -1
+     * @return a new set with the attributes in the closure
+     */
+    public AttributeSet closure(AttributeSet start, int skip) {
+        return expand(start, skip, skip, null);
+    }
+
+    /**
+     * Checks whether a set of attributes determines
+     * every attribute of a target set, stopping as soon
+     * as the last target attribute joins the closure.
+     *
+     * @param start  set of attributes to take the closure of
+     * @param target attributes that must be in the closure
+     * @param skip   position of the FD to leave out, or -1
+     * @return true if the closure of start contains target
+     */
+    public boolean implies(AttributeSet start, AttributeSet target, int skip) {
+        AttributeSet needed = new AttributeSet(target);
+        needed.removeAll(start);
+        if (needed.isEmpty()) {
+            return true;
+        }
+        // the closure only stops short once it holds every needed attribute
+        return expand(start, skip, skip, needed).containsAll(needed);
+    }
+
+    /**
+     * Checks whether a set of attributes determines
+     * every attribute of a target set without the FDs at
+     * positions skipFrom to skipTo, stopping as soon as
+     * the last target attribute joins the closure.
+     *
+     * @param start    set of attributes to take the closure of
+     * @param target   attributes that must be in the closure
+     * @param skipFrom first position of the FDs to leave out
+     * @param skipTo   last position of the FDs to leave out
+     * @return true if the closure of start contains target
+     */
+    public boolean implies(AttributeSet start, AttributeSet target, int skipFrom, int skipTo) {
+        AttributeSet needed = new AttributeSet(target);
+        needed.removeAll(start);
+        if (needed.isEmpty()) {
+            return true;
+        }
+        return expand(start, skipFrom, skipTo, needed).containsAll(needed);
+    }
+
+    /**
+     * Computes the closure of a set of attributes, stopping
+     * as soon as every attribute of a target set is in it.
+     * A closure that holds the whole target may then miss
+     * attributes a full closure would have.
+     *
+     * @param start  set of attributes to take the closure of
+     * @param target attributes whose membership is all that matters
+     * @return a new set with the attributes found
+     */
+    public AttributeSet closureUntil(AttributeSet start, AttributeSet target) {
+        return closureUntil(start, target, -1);
+    }
+
+    /**
+     * Computes the closure of a set of attributes without
+     * the FD at position skip, stopping as soon as every
+     * attribute of a target set is in it. An FD whose LHS
+     * is not inside the set returned never took part.
+     *
+     * @param start  set of attributes to take the closure of
+     * @param target attributes whose membership is all that matters
+     * @param skip   position of the FD to leave out, or -1
+     * @return a new set with the attributes found
+     */
+    public AttributeSet closureUntil(AttributeSet start, AttributeSet target, int skip) {
+        AttributeSet needed = new AttributeSet(target);
+        needed.removeAll(start);
+        if (needed.isEmpty()) {
+            return new AttributeSet(start);
+        }
+        return expand(start, skip, skip, needed);
+    }
+
+    // compute the closure of start without the FDs skipFrom to skipTo;
+    // with needed attributes given, stop as soon as all of them are in it
+    private AttributeSet expand(AttributeSet start, int skipFrom, int skipTo, AttributeSet needed) {
+        AttributeSet closure = new AttributeSet(start);
+        Scratch work = scratch.get();
+        // LHS attributes of each FD already in the closure
+        int[] seen = work.seen;
+        // attributes that joined the closure but were not processed yet
+        int[] queue = work.queue;
+        int head = 0;
+        int tail = 0;
+        int touched = 0;
+        int remaining = needed == null ? -1 : needed.size();
+        // FD index entries scanned and FDs fired, for the listener
+        int visits = 0;
+        int fired = 0;
+
+        // every starting attribute that appears in some LHS is processed
+        for (int a = start.nextAttribute(0); a >= 0 && a < universe; a = start.nextAttribute(a + 1)) {
+            queue[tail++] = a;
+        }
+
+        // FDs with an empty LHS hold right away
+        for (int i : emptyLeftSide) {
+            if ((i < skipFrom || i > skipTo) && !disabled[i]) {
+                int before = tail;
+                tail = fire(i, closure, queue, tail);
+                fired++;
+                if (needed != null && (remaining -= countNeeded(needed, queue, before, tail)) == 0) {
+                    break;
+                }
+            }
+        }
+
+        while (head < tail && remaining != 0) {
+            int a = queue[head++];
+            int end = indexStart[a + 1];
+            visits += end - indexStart[a];
+            for (int k = indexStart[a]; k < end; k++) {
+                int i = index[k];
+                // the LHS may have lost this attribute through leftSideReduced
+                if ((i >= skipFrom && i <= skipTo) || disabled[i] || (reduced[i] && !fds.lhsContains(i, a))) {
+                    continue;
+                }
+                if (seen[i]++ == 0) {
+                    work.touched[touched++] = i;
+                }
+                if (seen[i] == lhsCount[i]) {
+                    int before = tail;
+                    tail = fire(i, closure, queue, tail);
+                    fired++;
+                    if (needed != null && (remaining -= countNeeded(needed, queue, before, tail)) == 0) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        // leave the work arrays clean for the next closure on this thread
+        for (int t = 0; t < touched; t++) {
+            seen[work.touched[t]] = 0;
+        }
+        if (listener != null) {
+            listener.closureComputed(visits, fired);
+        }
+        return closure;
+    }
+
+    /**
+     * Sets the listener told about every closure.
+     * The listener may be called from several threads.
+     *
+     * @param listener the listener, or null for none
+     */
+    public void setListener(SynthesisListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Leaves the FD at the given position
+     * out of every later closure.
+     *
+     * @param fd position of the FD
+     */
+    public void disable(int fd) {
+        disabled[fd] = true;
+    }
+
+    /**
+     * Follows a change to the LHS of one FD
+     * in the store. The new LHS may only have
+     * lost attributes, never gained them.
+     *
+     * @param fd position of the FD
+     */
+    public void leftSideReduced(int fd) {
+        // attributes that left the LHS keep their index entry,
+        // which is skipped when the index is read
+        reduced[fd] = true;
+        lhsCount[fd] = fds.lhsSize(fd);
+    }
+
+    // add the RHS of FD i to the closure and queue the new attributes
+    private int fire(int i, AttributeSet closure, int[] queue, int tail) {
+        for (int k = fds.rhsStart(i), end = fds.rhsEnd(i); k < end; k++) {
+            int b = fds.attribute(k);
+            if (closure.add(b) && b < universe) {
+                queue[tail++] = b;
+            }
+        }
+        return tail;
+    }
+
+    // count the newly queued attributes that are still needed
+    private static int countNeeded(AttributeSet needed, int[] queue, int from, int to) {
+        int count = 0;
+        for (int k = from; k < to; k++) {
+            if (needed.contains(queue[k])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // work arrays of one thread, so a closure only costs
+    // time for the FDs and attributes it reaches
+    private final class Scratch {
+        // LHS attributes of each FD found so far, all 0 between closures
+        final int[] seen = new int[lhsCount.length];
+        // FDs whose seen count is not 0
+        final int[] touched = new int[lhsCount.length];
+        // attributes waiting to be processed
+        final int[] queue = new int[universe];
+    }
+}
@@ -0,0 +1,414 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The ComponentSynthesis class runs the synthesis
+ * separately for each connected component of the
+ * functional dependencies (FDs). Two attributes are
+ * connected when some FD mentions both, and an FD
+ * belongs to the component of its attributes.
+ * A closure never leaves the component it starts in,
+ * so the minimal basis, the merging of FDs and the
+ * subsumption of relations of one component do not
+ * depend on any other component. Each component gets
+ * its own SynthesisEngine, and the components are
+ * decomposed in parallel on the common fork-join pool.
+ *
+ * The result is the same as a run over all the FDs at
+ * once. Each FD of a component has an order key, its
+ * position in the split FDs, and a component sees its FDs
+ * in that order, so it drops and reduces the same FDs as
+ * the full run. The relations are put back in the order
+ * of their keys. The key of R is found one component at a
+ * time: a set is a superkey of R exactly when its part
+ * in every component is a superkey of that component,
+ * so each part can be made minimal on its own.
+ */
+
+final class ComponentSynthesis {
+
+    /**
+     * The Component class holds one connected component
+     * and what its synthesis left behind. The tag of each
+     * FD in the store is its place in the order array,
+     * which holds the order key of the FD.
+     */
+    static final class Component {
+        // the engine of the component, for its key
+        final SynthesisEngine engine;
+        // the FDs of the component, owned by the engine
+        final FDStore fds;
+        // order key of each FD the component started with
+        final long[] order;
+        // every attribute of the component
+        final AttributeSet attributes;
+        // the minimal basis, before merging, if it was kept
+        FDStore basis;
+        // one relation per FD left after merging
+        ArrayList<AttributeSet> relations;
+        // size of the closure of the LHS of each FD left
+        int[] closureSizes;
+        // relations contained in another relation of the component
+        boolean[] subsumed;
+        // key of the component from all of its attributes, once found
+        private AttributeSet key;
+
+        /**
+         * @param fds        the split FDs of the component, in the
+         *                   order of their keys, tagged 0, 1, ...
+         * @param order      order key of each FD
+         * @param attributes every attribute of the component
+         * @param cacheSize  number of closures to cache
+         * @param listener   told about the phases, or null
+         */
+        Component(FDStore fds, long[] order, AttributeSet attributes, int cacheSize, SynthesisListener listener) {
+            this.fds = fds;
+            this.order = order;
+            this.attributes = attributes;
+            this.engine = new SynthesisEngine(fds, attributes, cacheSize);
+            engine.setComponentSplitting(false);
+            engine.markSplit();
+            engine.setListener(listener);
+        }
+
+        /**
+         * The decompose method runs the minimal basis,
+         * merging and subsumption of the component.
+         *
+         * @param keepBasis true to keep a copy of the minimal basis
+         * @return this component
+         */
+        Component decompose(boolean keepBasis) {
+            engine.FindMinBasis();
+            if (keepBasis) {
+                basis = fds.copy();
+            }
+            relations = engine.relationsFromPartitions();
+            closureSizes = new int[fds.size()];
+            for (int i = 0; i < fds.size(); i++) {
+                closureSizes[i] = engine.FindClosure(fds.leftSide(i)).size();
+            }
+            SubsumptionIndex index = new SubsumptionIndex(relations);
+            subsumed = new boolean[relations.size()];
+            for (int i = 0; i < relations.size(); i++) {
+                subsumed[i] = index.isSubsumed(i);
+            }
+            return this;
+        }
+
+        /**
+         * @param i position of an FD left after merging
+         * @return the order key of the FD
+         */
+        long order(int i) {
+            return order[fds.tag(i)];
+        }
+
+        /**
+         * The findKey method finds the part of the key of R
+         * inside this component.
+         *
+         * @param closest position of the FD whose LHS the superkey
+         *                starts from, or -1 to start from every
+         *                attribute of the component
+         * @return the key of the component
+         */
+        AttributeSet findKey(int closest) {
+            if (closest < 0 && key != null) {
+                return key;
+            }
+            AttributeSet superKey = new AttributeSet(attributes);
+            if (closest >= 0) {
+                AttributeSet lhs = fds.leftSide(closest);
+                superKey.removeAll(engine.FindClosure(lhs));
+                superKey.addAll(lhs);
+                return engine.findKey(superKey);
+            }
+            key = engine.findKey(superKey);
+            return key;
+        }
+
+        /**
+         * @return true if the closure of one relation, without
+         *         its own FD, holds every attribute of the component
+         */
+        boolean hasSuperKeyRelation() {
+            for (int i = 0; i < relations.size(); i++) {
+                if (engine.FindClosure(relations.get(i), i).size() == attributes.size()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private ComponentSynthesis() {
+    }
+
+    /**
+     * The decompose method runs the synthesis one
+     * component at a time. The FDs must already be split
+     * (see FDStore.split) and are left as they are.
+     *
+     * @param fds           the split FDs
+     * @param relation      every attribute of the relation
+     * @param cacheSize     number of closures each component may cache
+     * @param listener      told about the phases of each component, or null
+     * @param parallelBasis true to run the tests of each minimal basis in parallel
+     * @return list of relation schemas, or null if the FDs
+     *         form fewer than two components
+     */
+    static ArrayList<AttributeSet> decompose(FDStore fds, AttributeSet relation, int cacheSize,
+            SynthesisListener listener, boolean parallelBasis) {
+        long started = phaseStarted(listener, "components");
+        int fdCount = fds.size();
+
+        // union-find over the attributes, joining all attributes of each FD
+        int[] parent = components(fds, relation);
+
+        // number the components in the order of their first FD
+        int[] componentOf = new int[parent.length];
+        Arrays.fill(componentOf, -1);
+        int[] fdComponent = new int[fdCount];
+        int[] fdCounts = new int[fdCount];
+        int count = 0;
+        for (int fd = 0; fd < fdCount; fd++) {
+            int root = find(parent, fds.attribute(fds.lhsStart(fd)));
+            if (componentOf[root] < 0) {
+                componentOf[root] = count++;
+            }
+            fdComponent[fd] = componentOf[root];
+            fdCounts[fdComponent[fd]]++;
+        }
+        if (count < 2) {
+            return null;
+        }
+
+        // copy the FDs of each component into its own store,
+        // keyed by their position so the results can be put back in order
+        FDStore[] stores = new FDStore[count];
+        long[][] orders = new long[count][];
+        AttributeSet[] attributes = new AttributeSet[count];
+        for (int c = 0; c < count; c++) {
+            stores[c] = new FDStore();
+            orders[c] = new long[fdCounts[c]];
+            attributes[c] = new AttributeSet();
+        }
+        for (int fd = 0; fd < fdCount; fd++) {
+            int c = fdComponent[fd];
+            orders[c][stores[c].size()] = fd;
+            stores[c].copyFD(fds, fd);
+            fds.addAttributes(fd, attributes[c]);
+        }
+        phaseFinished(listener, "components", started);
+
+        // decompose the components in parallel
+        Component[] components = IntStream.range(0, count).parallel()
+                .mapToObj(c -> {
+                    Component component = new Component(stores[c], orders[c], attributes[c], cacheSize, listener);
+                    component.engine.setParallelBasis(parallelBasis);
+                    return component.decompose(false);
+                })
+                .toArray(Component[]::new);
+        return combine(components, relation, listener);
+    }
+
+    /**
+     * The components method joins the attributes of
+     * every FD in a union-find forest.
+     *
+     * @param fds      the FDs
+     * @param relation every attribute of the relation
+     * @return the parent of each attribute; attributes
+     *         with the same root are connected
+     */
+    static int[] components(FDStore fds, AttributeSet relation) {
+        int[] parent = new int[relation.last() + 1];
+        for (int a = 0; a < parent.length; a++) {
+            parent[a] = a;
+        }
+        for (int fd = 0; fd < fds.size(); fd++) {
+            int first = find(parent, fds.attribute(fds.lhsStart(fd)));
+            for (int k = fds.lhsStart(fd) + 1; k < fds.lhsEnd(fd); k++) {
+                first = union(parent, first, fds.attribute(k));
+            }
+            for (int k = fds.rhsStart(fd); k < fds.rhsEnd(fd); k++) {
+                first = union(parent, first, fds.attribute(k));
+            }
+        }
+        return parent;
+    }
+
+    /**
+     * The combine method puts the relations of
+     * decomposed components together and adds the
+     * key of R, as the steps of SynthesisEngine
+     * would for all of their FDs at once.
+     *
+     * @param components the decomposed components
+     * @param relation   every attribute of the relation
+     * @param listener   told about the key and subsumption phases, or null
+     * @return list of relation schemas
+     */
+    static ArrayList<AttributeSet> combine(Component[] components, AttributeSet relation,
+            SynthesisListener listener) {
+        // a relation can only be a superkey of R when its
+        // closure reaches every attribute, so in one component
+        // that holds the whole relation
+        long started = phaseStarted(listener, "key");
+        AttributeSet key = null;
+        if (components.length != 1 || !components[0].attributes.equals(relation)
+                || !components[0].hasSuperKeyRelation()) {
+            key = findKey(components, relation);
+        }
+        phaseFinished(listener, "key", started);
+
+        // the relations left in each component, in the order of their FDs
+        started = phaseStarted(listener, "subsumption");
+        int count = 0;
+        for (Component component : components) {
+            count += component.relations.size();
+        }
+        long[] keys = new long[count];
+        AttributeSet[] kept = new AttributeSet[count];
+        int k = 0;
+        for (Component component : components) {
+            for (int i = 0; i < component.relations.size(); i++, k++) {
+                keys[k] = component.order(i);
+                if (!component.subsumed[i]) {
+                    kept[k] = component.relations.get(i);
+                }
+            }
+        }
+        AttributeSet[] sorted = new AttributeSet[count];
+        int[] rank = ranks(keys);
+        for (k = 0; k < count; k++) {
+            sorted[rank[k]] = kept[k];
+        }
+        ArrayList<AttributeSet> output = new ArrayList<AttributeSet>();
+        for (AttributeSet r : sorted) {
+            if (r != null) {
+                output.add(r);
+            }
+        }
+        if (key != null) {
+            output.add(key);
+        }
+        // relations of different components never contain each other,
+        // so only the key is left to compare with the others
+        output = SubsumptionIndex.removeSubsumed(output);
+        phaseFinished(listener, "subsumption", started);
+        return output;
+    }
+
+    /**
+     * The findKey method finds the key of R from the
+     * keys of the components. The superkey starts from
+     * the LHS with the largest closure over all components,
+     * the first one in the order of the FDs on a tie.
+     *
+     * @param components the decomposed components
+     * @param relation   every attribute of the relation
+     * @return the key
+     */
+    private static AttributeSet findKey(Component[] components, AttributeSet relation) {
+        // the LHS with the largest closure
+        int best = -1;
+        int bestFd = -1;
+        for (int c = 0; c < components.length; c++) {
+            Component component = components[c];
+            for (int i = 0; i < component.closureSizes.length; i++) {
+                if (best < 0 || component.closureSizes[i] > components[best].closureSizes[bestFd]
+                        || (component.closureSizes[i] == components[best].closureSizes[bestFd]
+                                && component.order(i) < components[best].order(bestFd))) {
+                    best = c;
+                    bestFd = i;
+                }
+            }
+        }
+
+        // attributes of no FD left are in every key
+        AttributeSet key = new AttributeSet(relation);
+        for (Component component : components) {
+            if (component.fds.size() > 0) {
+                key.removeAll(component.attributes);
+            }
+        }
+        if (best < 0) {
+            // every FD was trivial
+            return key;
+        }
+
+        // the superkey holds every attribute of the other components,
+        // so only the part in the best component is smaller than it
+        int bestComponent = best;
+        int closest = bestFd;
+        AttributeSet[] parts = IntStream.range(0, components.length).parallel()
+                .mapToObj(c -> components[c].fds.size() == 0 ? null
+                        : components[c].findKey(c == bestComponent ? closest : -1))
+                .toArray(AttributeSet[]::new);
+        for (AttributeSet part : parts) {
+            if (part != null) {
+                key.addAll(part);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * The ranks method finds where each of a
+     * number of distinct keys goes once they are sorted.
+     *
+     * @param keys distinct keys
+     * @return the position of each key in sorted order
+     */
+    static int[] ranks(long[] keys) {
+        long[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        int[] rank = new int[keys.length];
+        for (int k = 0; k < keys.length; k++) {
+            rank[k] = Arrays.binarySearch(sorted, keys[k]);
+        }
+        return rank;
+    }
+
+    // tell the listener a phase starts, returning the start time
+    private static long phaseStarted(SynthesisListener listener, String phase) {
+        if (listener == null) {
+            return 0;
+        }
+        listener.phaseStarted(phase);
+        return System.nanoTime();
+    }
+
+    // tell the listener how long a phase took
+    private static void phaseFinished(SynthesisListener listener, String phase, long started) {
+        if (listener != null) {
+            listener.phaseFinished(phase, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * @param parent the union-find forest
+     * @param a      an attribute
+     * @return the root of the tree of the attribute
+     */
+    static int find(int[] parent, int a) {
+        // halve the path on the way up
+        while (parent[a] != a) {
+            parent[a] = parent[parent[a]];
+            a = parent[a];
+        }
+        return a;
+    }
+
+    // join the trees of a root and an attribute, returning the new root
+    private static int union(int[] parent, int root, int a) {
+        int other = find(parent, a);
+        if (other != root) {
+            parent[other] = root;
+        }
+        return root;
+    }
+}
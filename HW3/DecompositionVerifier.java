@@ -0,0 +1,475 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The DecompositionVerifier class checks that a
+ * decomposition of R has the two properties the
+ * synthesis promises for a set F of functional
+ * dependencies (FDs).
+ *
+ * Lossless join is checked with the chase. The
+ * tableau has one row per relation and one column per
+ * attribute, and a row starts with the distinguished
+ * symbol in the columns of its relation. Each column is
+ * a union-find over the rows, in flat int arrays, where
+ * rows in one set hold the same symbol. An FD X->A joins
+ * the A sets of rows whose X symbols agree, and the join
+ * is lossless once some row is distinguished everywhere.
+ * When every FD is preserved, a row whose relation is a
+ * superkey of R always gets there, so that is tried first,
+ * and the tableau is only built when no relation is one.
+ * A superkey alone is not enough when FDs are lost.
+ *
+ * Dependency preservation is checked one FD X->Y at a
+ * time. Starting from Z = X, each relation Ri that meets Z
+ * adds closure(Z & Ri) & Ri to Z, until Z holds Y or stops
+ * growing. A relation is only looked at again once Z gains
+ * one of its attributes, and every closure stops as soon
+ * as it holds the rest of its relation.
+ * Most FDs never get that far. For each FD X->Y of F and
+ * relation Ri holding X, X->(Y & Ri) holds in Ri, and so
+ * does (Z & Ri)->(closure(Z & Ri) & Ri) each time one is
+ * found above. Z first takes the closure under these local
+ * FDs, which is cheap and often holds Y already.
+ */
+
+public class DecompositionVerifier {
+
+    // the FDs of F
+    private final FDStore fds;
+    // every attribute of R
+    private final AttributeSet relation;
+    // closures under F
+    private final ClosureEngine closureEngine;
+
+    /**
+     * Creates a verifier for F. The store is read,
+     * never changed, so it must not be one an engine
+     * is decomposing (see FDStore.copy).
+     *
+     * @param fds      the FDs of F
+     * @param relation every attribute of R
+     */
+    public DecompositionVerifier(FDStore fds, AttributeSet relation) {
+        this.fds = fds;
+        this.relation = new AttributeSet(relation);
+        this.closureEngine = new ClosureEngine(fds);
+    }
+
+    /**
+     * The verify method checks a decomposition.
+     *
+     * @param relations the relations of the decomposition
+     * @return what holds and what does not
+     */
+    public Result verify(List<AttributeSet> relations) {
+        AttributeSet covered = new AttributeSet();
+        for (AttributeSet r : relations) {
+            covered.addAll(r);
+        }
+        boolean covers = covered.equals(relation);
+        int notPreserved = firstNotPreserved(relations);
+        boolean lossless = covers && losslessJoin(relations, notPreserved < 0);
+        return new Result(covers, lossless, notPreserved);
+    }
+
+    /**
+     * The losslessJoin method runs the chase
+     * for a decomposition that covers R.
+     *
+     * @param relations  the relations of the decomposition
+     * @param preserving true if every FD is preserved
+     * @return true if the join of the relations is lossless
+     */
+    boolean losslessJoin(List<AttributeSet> relations, boolean preserving) {
+        // the key relation is added last, so look from the end
+        for (int i = relations.size() - 1; preserving && i >= 0; i--) {
+            if (closureEngine.implies(relations.get(i), relation, -1)) {
+                return true;
+            }
+        }
+        return chase(relations);
+    }
+
+    // chase the tableau of the relations, see the class comment
+    private boolean chase(List<AttributeSet> relations) {
+        int rows = relations.size();
+        int[] columnOf = new int[relation.last() + 1];
+        int[] attributes = relation.toArray();
+        int columns = attributes.length;
+        for (int c = 0; c < columns; c++) {
+            columnOf[attributes[c]] = c;
+        }
+
+        // cell (row, column) is entry column * rows + row; its symbol is
+        // the root of its set, and distinguished says if the root is one
+        int[] parent = new int[rows * columns];
+        boolean[] distinguished = new boolean[rows * columns];
+        for (int c = 0; c < columns; c++) {
+            int first = -1;
+            for (int row = 0; row < rows; row++) {
+                int cell = c * rows + row;
+                parent[cell] = cell;
+                if (relations.get(row).contains(attributes[c])) {
+                    // every distinguished symbol of a column is the same symbol
+                    if (first < 0) {
+                        first = cell;
+                        distinguished[cell] = true;
+                    } else {
+                        parent[cell] = first;
+                    }
+                }
+            }
+        }
+
+        // LHS columns of each FD, and the rows sorted by the hash of their LHS
+        long[] keys = new long[rows];
+        int[] leaders = new int[rows];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int fd = 0; fd < fds.size(); fd++) {
+                for (int row = 0; row < rows; row++) {
+                    int h = 1;
+                    for (int k = fds.lhsStart(fd); k < fds.lhsEnd(fd); k++) {
+                        h = 31 * h + find(parent, columnOf[fds.attribute(k)] * rows + row);
+                    }
+                    keys[row] = (long) h << 32 | row;
+                }
+                Arrays.sort(keys);
+                // rows with the same hash, grouped by their LHS symbols
+                for (int from = 0, to; from < rows; from = to) {
+                    to = from + 1;
+                    while (to < rows && keys[to] >>> 32 == keys[from] >>> 32) {
+                        to++;
+                    }
+                    int groups = 0;
+                    for (int k = from; k < to; k++) {
+                        int row = (int) keys[k];
+                        int g = 0;
+                        while (g < groups && !sameLeftSide(parent, rows, columnOf, fd, leaders[g], row)) {
+                            g++;
+                        }
+                        if (g == groups) {
+                            leaders[groups++] = row;
+                        } else {
+                            changed |= equate(parent, distinguished, rows, columnOf, fd, leaders[g], row);
+                        }
+                    }
+                }
+            }
+            if (changed && hasDistinguishedRow(parent, distinguished, rows, columns)) {
+                return true;
+            }
+        }
+        return hasDistinguishedRow(parent, distinguished, rows, columns);
+    }
+
+    /**
+     * The firstNotPreserved method checks
+     * every FD of F against the relations.
+     *
+     * @param relations the relations of the decomposition
+     * @return position of the first FD that is not
+     *         preserved, or -1 if all of them are
+     */
+    int firstNotPreserved(List<AttributeSet> relations) {
+        int count = relations.size();
+        // relations holding each attribute, as flat lists
+        int universe = relation.last() + 1;
+        int[] start = new int[universe + 1];
+        for (AttributeSet r : relations) {
+            for (int a = r.nextAttribute(0); a >= 0 && a < universe; a = r.nextAttribute(a + 1)) {
+                start[a + 1]++;
+            }
+        }
+        for (int a = 0; a < universe; a++) {
+            start[a + 1] += start[a];
+        }
+        int[] holding = new int[start[universe]];
+        int[] fill = Arrays.copyOf(start, universe);
+        for (int i = 0; i < count; i++) {
+            AttributeSet r = relations.get(i);
+            for (int a = r.nextAttribute(0); a >= 0 && a < universe; a = r.nextAttribute(a + 1)) {
+                holding[fill[a]++] = i;
+            }
+        }
+
+        // FDs that hold in single relations, closed over first; the
+        // engine is rebuilt as FDs are learned, each time it doubles
+        FDStore localFDs = localFDs(relations, holding, start);
+        ClosureEngine local = new ClosureEngine(localFDs);
+        int built = localFDs.size();
+
+        // relations waiting to be looked at for the current FD, in a
+        // ring one longer than the relations so that full is not empty
+        int[] queue = new int[count + 1];
+        boolean[] queued = new boolean[count];
+        for (int fd = 0; fd < fds.size(); fd++) {
+            AttributeSet lhs = fds.leftSide(fd);
+            AttributeSet needed = fds.rightSide(fd);
+            needed.removeAll(lhs);
+            if (needed.isEmpty()) {
+                continue;
+            }
+            // Z grows from what the local FDs give until it holds the RHS
+            if (localFDs.size() >= 2 * built + 64) {
+                local = new ClosureEngine(localFDs);
+                built = localFDs.size();
+            }
+            AttributeSet z = local.closureUntil(lhs, needed);
+            needed.removeAll(z);
+            if (needed.isEmpty()) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            for (int a = z.nextAttribute(0); a >= 0; a = z.nextAttribute(a + 1)) {
+                tail = enqueue(a, start, holding, queue, queued, tail);
+            }
+            while (head != tail && !needed.isEmpty()) {
+                int i = queue[head];
+                head = (head + 1) % queue.length;
+                queued[i] = false;
+                AttributeSet r = relations.get(i);
+                AttributeSet missing = new AttributeSet(r);
+                missing.removeAll(z);
+                if (missing.isEmpty()) {
+                    continue;
+                }
+                AttributeSet inside = new AttributeSet(r);
+                inside.retainAll(z);
+                AttributeSet found = closureEngine.closureUntil(inside, missing);
+                found.retainAll(missing);
+                if (!found.isEmpty()) {
+                    // inside -> found holds in Ri, learn it for later FDs
+                    addSide(localFDs, inside);
+                    addSide(localFDs, found);
+                }
+                for (int a = found.nextAttribute(0); a >= 0; a = found.nextAttribute(a + 1)) {
+                    z.add(a);
+                    needed.remove(a);
+                    tail = enqueue(a, start, holding, queue, queued, tail);
+                }
+            }
+            // clear the queue for the next FD
+            while (head != tail) {
+                queued[queue[head]] = false;
+                head = (head + 1) % queue.length;
+            }
+            if (!needed.isEmpty()) {
+                return fd;
+            }
+        }
+        return -1;
+    }
+
+    // for each FD X->Y of F and each relation Ri holding X,
+    // the FD X->(Y & Ri), which holds in the projection on Ri
+    private FDStore localFDs(List<AttributeSet> relations, int[] holding, int[] start) {
+        FDStore local = new FDStore();
+        AttributeSet part = new AttributeSet();
+        for (int fd = 0; fd < fds.size(); fd++) {
+            if (fds.lhsSize(fd) == 0) {
+                // an empty LHS is in every relation
+                for (AttributeSet r : relations) {
+                    addLocal(local, fd, r, part);
+                }
+                continue;
+            }
+            // look among the relations of the rarest LHS attribute
+            int rarest = fds.attribute(fds.lhsStart(fd));
+            for (int k = fds.lhsStart(fd); k < fds.lhsEnd(fd); k++) {
+                int a = fds.attribute(k);
+                if (start[a + 1] - start[a] < start[rarest + 1] - start[rarest]) {
+                    rarest = a;
+                }
+            }
+            for (int k = start[rarest]; k < start[rarest + 1]; k++) {
+                AttributeSet r = relations.get(holding[k]);
+                if (containsLeftSide(r, fd)) {
+                    addLocal(local, fd, r, part);
+                }
+            }
+        }
+        return local;
+    }
+
+    // add X->(Y & R) - X for an FD X->Y of F, unless it is empty
+    private void addLocal(FDStore local, int fd, AttributeSet r, AttributeSet part) {
+        part.clear();
+        for (int k = fds.rhsStart(fd); k < fds.rhsEnd(fd); k++) {
+            int a = fds.attribute(k);
+            if (r.contains(a) && !fds.lhsContains(fd, a)) {
+                part.add(a);
+            }
+        }
+        if (part.isEmpty()) {
+            return;
+        }
+        for (int k = fds.lhsStart(fd); k < fds.lhsEnd(fd); k++) {
+            local.add(fds.attribute(k));
+        }
+        local.closeSide();
+        addSide(local, part);
+    }
+
+    // add a side made of the attributes of a set
+    private static void addSide(FDStore store, AttributeSet side) {
+        for (int a = side.nextAttribute(0); a >= 0; a = side.nextAttribute(a + 1)) {
+            store.add(a);
+        }
+        store.closeSide();
+    }
+
+    // true if a relation holds the LHS of an FD
+    private boolean containsLeftSide(AttributeSet r, int fd) {
+        for (int k = fds.lhsStart(fd); k < fds.lhsEnd(fd); k++) {
+            if (!r.contains(fds.attribute(k))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // queue the relations holding an attribute that are not queued yet
+    private static int enqueue(int a, int[] start, int[] holding, int[] queue, boolean[] queued, int tail) {
+        if (a + 1 >= start.length) {
+            return tail;
+        }
+        for (int k = start[a]; k < start[a + 1]; k++) {
+            int i = holding[k];
+            if (!queued[i]) {
+                queued[i] = true;
+                queue[tail] = i;
+                tail = (tail + 1) % queue.length;
+            }
+        }
+        return tail;
+    }
+
+    // true if two rows hold the same symbols in the LHS columns of an FD
+    private boolean sameLeftSide(int[] parent, int rows, int[] columnOf, int fd, int a, int b) {
+        for (int k = fds.lhsStart(fd); k < fds.lhsEnd(fd); k++) {
+            int column = columnOf[fds.attribute(k)] * rows;
+            if (find(parent, column + a) != find(parent, column + b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // give two rows the same symbols in the RHS columns of an FD
+    private boolean equate(int[] parent, boolean[] distinguished, int rows, int[] columnOf, int fd, int a,
+            int b) {
+        boolean changed = false;
+        for (int k = fds.rhsStart(fd); k < fds.rhsEnd(fd); k++) {
+            int column = columnOf[fds.attribute(k)] * rows;
+            int x = find(parent, column + a);
+            int y = find(parent, column + b);
+            if (x != y) {
+                // the distinguished symbol wins
+                if (distinguished[y]) {
+                    parent[x] = y;
+                } else {
+                    parent[y] = x;
+                    distinguished[x] |= distinguished[y];
+                }
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    // true if some row of the tableau is distinguished in every column
+    private static boolean hasDistinguishedRow(int[] parent, boolean[] distinguished, int rows, int columns) {
+        for (int row = 0; row < rows; row++) {
+            int c = 0;
+            while (c < columns && distinguished[find(parent, c * rows + row)]) {
+                c++;
+            }
+            if (c == columns) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // root of the set of a cell, halving the path on the way
+    private static int find(int[] parent, int cell) {
+        while (parent[cell] != cell) {
+            parent[cell] = parent[parent[cell]];
+            cell = parent[cell];
+        }
+        return cell;
+    }
+
+    /**
+     * The Result class holds what a verification found.
+     */
+    public static final class Result {
+        // true if the relations hold every attribute of R
+        private final boolean covers;
+        // true if the join of the relations is lossless
+        private final boolean lossless;
+        // position of the first FD not preserved, or -1
+        private final int notPreserved;
+
+        Result(boolean covers, boolean lossless, int notPreserved) {
+            this.covers = covers;
+            this.lossless = lossless;
+            this.notPreserved = notPreserved;
+        }
+
+        /**
+         * @return true if the relations hold every attribute of R
+         */
+        public boolean covers() {
+            return covers;
+        }
+
+        /**
+         * @return true if the join of the relations is lossless
+         */
+        public boolean isLossless() {
+            return lossless;
+        }
+
+        /**
+         * @return true if every FD of F is preserved
+         */
+        public boolean preservesDependencies() {
+            return notPreserved < 0;
+        }
+
+        /**
+         * @return position of the first FD of F that is
+         *         not preserved, or -1 if all of them are
+         */
+        public int getNotPreserved() {
+            return notPreserved;
+        }
+
+        /**
+         * @return true if every check passed
+         */
+        public boolean isValid() {
+            return covers && lossless && notPreserved < 0;
+        }
+
+        @Override
+        public String toString() {
+            if (isValid()) {
+                return "lossless join, dependency preserving";
+            }
+            StringBuilder sb = new StringBuilder();
+            if (!covers) {
+                sb.append("relations miss attributes of R; ");
+            }
+            sb.append(lossless ? "lossless join" : "NOT lossless join");
+            sb.append(notPreserved < 0 ? ", dependency preserving"
+                    : ", NOT dependency preserving: FD " + (notPreserved + 1) + " is lost");
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.Arrays;
+
+/**
+ * The EquivalenceClasses class finds attributes that
+ * determine each other through FDs with a single LHS
+ * attribute, such as 2->3 and 3->2. These are the
+ * strongly connected components of the graph with an
+ * edge a->b for every FD a->...b..., found with
+ * Tarjan's algorithm. The attributes of one class all
+ * have the same closure, so the synthesis can run with
+ * one attribute standing in for each class.
+ *
+ * Cycles that need a larger LHS, such as 1,2->3 with
+ * 3->1, are not found; they are left to the synthesis.
+ */
+
+final class EquivalenceClasses {
+
+    private EquivalenceClasses() {
+    }
+
+    /**
+     * The representatives method finds the classes
+     * and picks the smallest attribute of each as the
+     * one that stands in for the others.
+     *
+     * @param fds      the FDs
+     * @param universe one more than the largest attribute
+     * @return the representative of each attribute, itself
+     *         for attributes in no larger class, or null
+     *         if every class holds a single attribute
+     */
+    static int[] representatives(FDStore fds, int universe) {
+        // edges a -> b for every FD with LHS {a} and b in its RHS,
+        // as flat lists with an offset table like ClosureEngine
+        int[] edgeStart = new int[universe + 1];
+        for (int fd = 0; fd < fds.size(); fd++) {
+            if (fds.lhsSize(fd) == 1) {
+                edgeStart[fds.attribute(fds.lhsStart(fd)) + 1] += fds.rhsSize(fd);
+            }
+        }
+        for (int a = 0; a < universe; a++) {
+            edgeStart[a + 1] += edgeStart[a];
+        }
+        int[] edges = new int[edgeStart[universe]];
+        int[] fill = Arrays.copyOf(edgeStart, universe);
+        for (int fd = 0; fd < fds.size(); fd++) {
+            if (fds.lhsSize(fd) == 1) {
+                int a = fds.attribute(fds.lhsStart(fd));
+                for (int k = fds.rhsStart(fd); k < fds.rhsEnd(fd); k++) {
+                    edges[fill[a]++] = fds.attribute(k);
+                }
+            }
+        }
+
+        // Tarjan's algorithm without recursion, so long chains
+        // of FDs cannot overflow the call stack
+        int[] order = new int[universe];
+        Arrays.fill(order, -1);
+        int[] low = new int[universe];
+        boolean[] onStack = new boolean[universe];
+        int[] stack = new int[universe];
+        int top = 0;
+        // attributes being visited and the next edge of each
+        int[] path = new int[universe];
+        int[] nextEdge = new int[universe];
+        int[] representative = new int[universe];
+        int visited = 0;
+        boolean found = false;
+
+        for (int root = 0; root < universe; root++) {
+            if (order[root] >= 0) {
+                // in a class found already
+                continue;
+            }
+            if (edgeStart[root] == edgeStart[root + 1]) {
+                // determines nothing on its own, a class by itself
+                // unless an edge leads here later
+                representative[root] = root;
+                continue;
+            }
+            int depth = 0;
+            path[0] = root;
+            nextEdge[root] = edgeStart[root];
+            order[root] = low[root] = visited++;
+            stack[top++] = root;
+            onStack[root] = true;
+            while (depth >= 0) {
+                int a = path[depth];
+                if (nextEdge[a] < edgeStart[a + 1]) {
+                    int b = edges[nextEdge[a]++];
+                    if (order[b] < 0) {
+                        // visit b next
+                        order[b] = low[b] = visited++;
+                        nextEdge[b] = edgeStart[b];
+                        stack[top++] = b;
+                        onStack[b] = true;
+                        path[++depth] = b;
+                    } else if (onStack[b]) {
+                        low[a] = Math.min(low[a], order[b]);
+                    }
+                    continue;
+                }
+                // every edge of a is done
+                if (low[a] == order[a]) {
+                    // a is the first attribute of its class, pop the class
+                    int smallest = a;
+                    int from = top;
+                    do {
+                        from--;
+                        smallest = Math.min(smallest, stack[from]);
+                    } while (stack[from] != a);
+                    for (int k = from; k < top; k++) {
+                        representative[stack[k]] = smallest;
+                        onStack[stack[k]] = false;
+                    }
+                    found |= top - from > 1;
+                    top = from;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = path[depth];
+                    low[parent] = Math.min(low[parent], low[a]);
+                }
+            }
+        }
+        return found ? representative : null;
+    }
+}
@@ -0,0 +1,47 @@
+import java.io.IOException;
+
+/**
+ * The FDFormatException class signals
+ * that a text file of functional dependencies
+ * is not in the lhs;rhs format.
+ * It records the line and column where
+ * the problem was found.
+ */
+
+public class FDFormatException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    // line of the problem, counted from 1
+    private final int line;
+    // column of the problem, counted from 1
+    private final int column;
+
+    /**
+     * Creates the exception for a problem
+     * found at the given place in the file.
+     *
+     * @param problem description of the problem
+     * @param line    line of the problem, from 1
+     * @param column  column of the problem, from 1
+     */
+    public FDFormatException(String problem, int line, int column) {
+        super("line " + line + ", column " + column + ": " + problem);
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * @return line of the problem, counted from 1
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return column of the problem, counted from 1
+     */
+    public int getColumn() {
+        return column;
+    }
+}
@@ -0,0 +1,467 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The FDParser class reads a text file of
+ * functional dependencies (FDs) byte by byte
+ * from a memory-mapped file and puts the
+ * attributes straight into an FDStore.
+ *
+ * Each line holds one FD of the form lhs;rhs, where
+ * each side is a list of attributes delimited by comma.
+ * An attribute is a number, or a name made of letters,
+ * digits and '_' that does not start with a digit.
+ * Like the original reader, blanks at either end of
+ * a line, trailing commas after a side and trailing
+ * semicolons after the RHS are allowed.
+ * Lines end with \n, \r or \r\n.
+ *
+ * The first line may instead be a header such as
+ * R(A,B,C,D) that lists every attribute of the relation.
+ * The FDs may then only use those attributes.
+ * Without a header a file of numbers makes the relation
+ * the way the original program did (see
+ * AttributeDictionary.numbered), and a file with names
+ * makes it from the attributes found in the FDs.
+ * Either way the store holds dense ids and the
+ * AttributeDictionary that names them.
+ */
+
+public class FDParser {
+
+    // largest region of the file mapped at one time
+    private static final long WINDOW = 1L << 30;
+
+    // states of the line scanner
+    private static final int LINE_START = 0;
+    private static final int LEFT_ATTRIBUTE = 1;
+    private static final int LEFT_COMMA = 2;
+    private static final int LEFT_COMMAS = 3;
+    private static final int RIGHT_START = 4;
+    private static final int RIGHT_ATTRIBUTE = 5;
+    private static final int RIGHT_COMMA = 6;
+    private static final int RIGHT_COMMAS = 7;
+    private static final int SEMICOLONS = 8;
+    private static final int TRAILING = 9;
+    private static final int HEADER_START = 10;
+    private static final int HEADER_ATTRIBUTE = 11;
+    private static final int HEADER_COMMA = 12;
+    private static final int HEADER_END = 13;
+
+    // where the parsed FDs go
+    private final FDStore store = new FDStore();
+
+    // current state of the scanner
+    private int state = LINE_START;
+    // value of the number being read
+    private long number;
+    // true if the attribute being read is a name
+    private boolean name;
+    // the name being read
+    private final StringBuilder token = new StringBuilder();
+    // attributes declared by the header, or null without one
+    private AttributeDictionary header;
+    // names found in a file without a header; name k
+    // is stored as -1 - k until finish gives it an id
+    private final AttributeDictionary names = new AttributeDictionary();
+    // each attribute of a file without a header as it was
+    // stored, in the order first found, since the store sorts
+    // each side; null once finish has used it
+    private int[] given = new int[64];
+    private int givenCount;
+    // open addressing table of the numbers already in given,
+    // plus one, so that each is logged only once
+    private int[] numbers = new int[64];
+    private int numberCount;
+    // line and column of the byte being read, both from 1
+    private int line = 1;
+    private int column = 0;
+    // true once the current line has any byte in it
+    private boolean lineStarted;
+    // true right after a \r, so a following \n is skipped
+    private boolean afterCarriageReturn;
+
+    /**
+     * The parse method reads every FD
+     * in the given text file.
+     *
+     * @param txtFile name of the text file
+     * @return store holding the FDs in file order
+     * @throws FDFormatException if a line is in the wrong format
+     * @throws IOException       if the file cannot be read
+     */
+    public static FDStore parse(String txtFile) throws IOException {
+        return parse(Paths.get(txtFile));
+    }
+
+    /**
+     * The parse method reads every FD
+     * in the given text file.
+     *
+     * @param path path of the text file
+     * @return store holding the FDs in file order
+     * @throws FDFormatException if a line is in the wrong format
+     * @throws IOException       if the file cannot be read
+     */
+    public static FDStore parse(Path path) throws IOException {
+        FDParser parser = new FDParser();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            // map the file one window at a time, the scanner
+            // keeps its state across window boundaries
+            for (long offset = 0; offset < size; offset += WINDOW) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min(WINDOW, size - offset));
+                int limit = buffer.limit();
+                for (int i = 0; i < limit; i++) {
+                    parser.accept(buffer.get(i));
+                }
+            }
+        }
+        parser.finish();
+        return parser.store;
+    }
+
+    /**
+     * The parse method reads every FD in
+     * an array of bytes, such as a request
+     * received over a socket.
+     *
+     * @param bytes  the text
+     * @param length number of bytes to read
+     * @return store holding the FDs in text order
+     * @throws FDFormatException if a line is in the wrong format
+     */
+    public static FDStore parse(byte[] bytes, int length) throws FDFormatException {
+        FDParser parser = new FDParser();
+        for (int i = 0; i < length; i++) {
+            parser.accept(bytes[i]);
+        }
+        parser.finish();
+        return parser.store;
+    }
+
+    // feed one byte to the scanner
+    @SuppressWarnings("fallthrough")
+    private void accept(byte b) throws FDFormatException {
+        if (b == '\n' && afterCarriageReturn) {
+            // second half of \r\n
+            afterCarriageReturn = false;
+            return;
+        }
+        afterCarriageReturn = b == '\r';
+        if (b == '\n' || b == '\r') {
+            endLine();
+            return;
+        }
+        column++;
+        lineStarted = true;
+
+        boolean digit = b >= '0' && b <= '9';
+        boolean start = digit || isNameStart(b);
+        boolean blank = (b & 0xff) <= ' ';
+        switch (state) {
+            case LINE_START:
+                if (start) {
+                    startAttribute(b, LEFT_ATTRIBUTE);
+                } else if (!blank) {
+                    throw error("expected an attribute");
+                }
+                break;
+            case LEFT_ATTRIBUTE:
+            case RIGHT_ATTRIBUTE:
+                if (continueAttribute(b)) {
+                    break;
+                } else if (b == ',') {
+                    addAttribute();
+                    state = state == LEFT_ATTRIBUTE ? LEFT_COMMA : RIGHT_COMMA;
+                } else if (b == ';') {
+                    addAttribute();
+                    endSide();
+                } else if (blank && state == RIGHT_ATTRIBUTE) {
+                    addAttribute();
+                    state = TRAILING;
+                } else if (b == '(' && state == LEFT_ATTRIBUTE && name && line == 1
+                        && store.attributeCount() == 0) {
+                    // the name of the relation, its attributes follow
+                    header = new AttributeDictionary();
+                    state = HEADER_START;
+                } else {
+                    throw error(state == LEFT_ATTRIBUTE ? "expected ',' or ';'" : "expected ','");
+                }
+                break;
+            case LEFT_COMMA:
+            case RIGHT_COMMA:
+                if (start) {
+                    startAttribute(b, state == LEFT_COMMA ? LEFT_ATTRIBUTE : RIGHT_ATTRIBUTE);
+                    break;
+                }
+                // fall through, more commas or the end of the side
+            case LEFT_COMMAS:
+            case RIGHT_COMMAS:
+                if (b == ',') {
+                    state = state <= LEFT_COMMAS ? LEFT_COMMAS : RIGHT_COMMAS;
+                } else if (b == ';') {
+                    endSide();
+                } else if (blank && state >= RIGHT_COMMA) {
+                    state = TRAILING;
+                } else {
+                    throw error(state <= LEFT_COMMAS ? "expected ',' or ';'" : "expected ','");
+                }
+                break;
+            case RIGHT_START:
+                if (start) {
+                    startAttribute(b, RIGHT_ATTRIBUTE);
+                } else {
+                    throw error("expected an attribute");
+                }
+                break;
+            case SEMICOLONS:
+                if (blank) {
+                    state = TRAILING;
+                } else if (b != ';') {
+                    throw error("expected the end of the line");
+                }
+                break;
+            case HEADER_START:
+                if (start) {
+                    startAttribute(b, HEADER_ATTRIBUTE);
+                } else if (!blank) {
+                    throw error("expected an attribute");
+                }
+                break;
+            case HEADER_ATTRIBUTE:
+                if (continueAttribute(b)) {
+                    break;
+                }
+                declareAttribute();
+                state = HEADER_COMMA;
+                // fall through, the attribute is followed by ',' or ')'
+            case HEADER_COMMA:
+                if (b == ',') {
+                    state = HEADER_START;
+                } else if (b == ')') {
+                    state = HEADER_END;
+                } else if (!blank) {
+                    throw error("expected ',' or ')'");
+                }
+                break;
+            default:
+                if (!blank) {
+                    throw error("expected the end of the line");
+                }
+                break;
+        }
+    }
+
+    // a ';' ends the LHS, or starts the trailing semicolons after the RHS
+    private void endSide() {
+        if (state <= LEFT_COMMAS) {
+            closeSide();
+            state = RIGHT_START;
+        } else {
+            state = SEMICOLONS;
+        }
+    }
+
+    // the current line has ended
+    @SuppressWarnings("fallthrough")
+    private void endLine() throws FDFormatException {
+        switch (state) {
+            case RIGHT_ATTRIBUTE:
+                addAttribute();
+                // fall through
+            case RIGHT_COMMA:
+            case RIGHT_COMMAS:
+            case SEMICOLONS:
+            case TRAILING:
+                closeSide();
+                break;
+            case HEADER_END:
+                break;
+            case HEADER_START:
+            case HEADER_ATTRIBUTE:
+            case HEADER_COMMA:
+                column++;
+                throw error("expected ')'");
+            case RIGHT_START:
+                column++;
+                throw error("expected an attribute");
+            case LINE_START:
+                column++;
+                throw error("empty line");
+            default:
+                column++;
+                throw error("expected ';'");
+        }
+        state = LINE_START;
+        line++;
+        column = 0;
+        lineStarted = false;
+    }
+
+    // the input has ended
+    private void finish() throws FDFormatException {
+        // a last line without a line break still counts
+        if (lineStarted) {
+            endLine();
+        }
+
+        if (header != null) {
+            // the store already holds the ids of the header
+            store.setDictionary(header);
+        } else if (names.size() == 0) {
+            store.setDictionary(AttributeDictionary.numbered(store));
+        } else {
+            // give ids in the order the attributes are first found,
+            // numbers among names are names like any other
+            store.forgetOrders();
+            AttributeDictionary dictionary = new AttributeDictionary();
+            int[] nameIds = new int[names.size()];
+            for (int k = 0; k < givenCount; k++) {
+                int a = given[k];
+                int id = dictionary.intern(a < 0 ? names.name(-1 - a) : Integer.toString(a));
+                if (a < 0) {
+                    nameIds[-1 - a] = id;
+                }
+            }
+            store.renumber(a -> a < 0 ? nameIds[-1 - a] : dictionary.id(Integer.toString(a)));
+            store.setDictionary(dictionary);
+        }
+        given = null;
+        numbers = null;
+    }
+
+    // end a side; without a header the sides keep the order
+    // the original program walked them in (see FDStore)
+    private void closeSide() {
+        if (header == null) {
+            store.closeSideKeepingOrder();
+        } else {
+            store.closeSide();
+        }
+    }
+
+    // begin reading an attribute with its first byte
+    private void startAttribute(byte b, int next) {
+        name = !(b >= '0' && b <= '9');
+        if (name) {
+            token.setLength(0);
+            token.append((char) b);
+        } else {
+            number = b - '0';
+        }
+        state = next;
+    }
+
+    // add one more byte to the attribute being read,
+    // or return false if it does not belong to it
+    private boolean continueAttribute(byte b) throws FDFormatException {
+        boolean digit = b >= '0' && b <= '9';
+        if (name && (digit || isNameStart(b))) {
+            token.append((char) b);
+            return true;
+        }
+        if (!name && digit) {
+            number = number * 10 + (b - '0');
+            if (number > Integer.MAX_VALUE) {
+                throw error("attribute number is too large");
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // the attribute just read, as it is spelled
+    private String attributeText() {
+        return name ? token.toString() : Long.toString(number);
+    }
+
+    // add the attribute just read to the side being built
+    private void addAttribute() throws FDFormatException {
+        if (header != null) {
+            int id = header.id(attributeText());
+            if (id < 0) {
+                throw error("attribute " + attributeText() + " is not in the relation");
+            }
+            store.add(id);
+        } else {
+            int a;
+            boolean first;
+            if (name) {
+                int known = names.size();
+                a = -1 - names.intern(token.toString());
+                first = names.size() > known;
+            } else {
+                a = (int) number;
+                first = addNumber(a);
+            }
+            store.add(a);
+            if (first) {
+                if (givenCount == given.length) {
+                    given = Arrays.copyOf(given, givenCount * 2);
+                }
+                given[givenCount++] = a;
+            }
+        }
+    }
+
+    // add a number to the numbers table,
+    // or return false if it is already there
+    private boolean addNumber(int a) {
+        int mask = numbers.length - 1;
+        int slot = numberSlot(a, mask);
+        while (numbers[slot] != 0) {
+            if (numbers[slot] == a + 1) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        numbers[slot] = a + 1;
+        if (++numberCount * 4 > numbers.length * 3) {
+            // keep the table at most three quarters full
+            int[] old = numbers;
+            numbers = new int[old.length * 2];
+            mask = numbers.length - 1;
+            for (int n : old) {
+                if (n != 0) {
+                    slot = numberSlot(n - 1, mask);
+                    while (numbers[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    numbers[slot] = n;
+                }
+            }
+        }
+        return true;
+    }
+
+    // first slot of a number in a table with the given mask
+    private static int numberSlot(int a, int mask) {
+        int h = a * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // add the attribute just read to the header
+    private void declareAttribute() throws FDFormatException {
+        if (header.id(attributeText()) >= 0) {
+            throw error("attribute " + attributeText() + " is declared twice");
+        }
+        header.intern(attributeText());
+    }
+
+    // true for the bytes a name may start with
+    private static boolean isNameStart(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_';
+    }
+
+    // build the exception for the byte being read
+    private FDFormatException error(String problem) {
+        return new FDFormatException(problem, line, column);
+    }
+}
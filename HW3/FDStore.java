@@ -0,0 +1,677 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * The FDStore class keeps functional dependencies (FDs)
+ * in flat int arrays instead of one set object per side.
+ * All attributes sit in a single array, and an offset
+ * table records where each side starts and ends.
+ * Side 2 * i is the LHS of FD i and side 2 * i + 1 its RHS.
+ * The attributes of each side are kept sorted and
+ * without duplicates.
+ * A store read by FDParser holds dense attribute ids
+ * and the AttributeDictionary that names them.
+ *
+ * The synthesis runs on the store itself. Sides may
+ * share attributes in the array, so splitting X->AB
+ * into X->A and X->B copies no attributes at all.
+ * FDs are removed by marking them and then compacting
+ * the offset table, and a side that changes is written
+ * at the end of the attribute array. The old copy is
+ * left behind, so the array grows by at most the size
+ * of the sides that were rewritten.
+ * Each FD carries an int tag, its position when it was
+ * added unless set otherwise, which stays with it as
+ * FDs are split, merged and compacted.
+ *
+ * The original program kept each side in a HashSet and
+ * took the RHS attributes in the order of that set when
+ * splitting, and the LHS attributes in that order when
+ * dropping extraneous ones. The minimal basis depends on
+ * both, so a side closed with closeSideKeepingOrder also
+ * remembers the order a HashSet walks its attributes in,
+ * when that is not ascending. Attributes below 16, or
+ * below the capacity the set grew to, come out ascending,
+ * so most sides keep no order at all.
+ */
+
+public class FDStore {
+
+    // attributes of every side
+    private int[] attributes;
+    // number of used entries in attributes
+    private int attributeCount;
+    // start of the side being built
+    private int openStart;
+    // sideStart[k] is the first attribute of side k
+    private int[] sideStart;
+    // sideEnd[k] is one past the last attribute of side k
+    private int[] sideEnd;
+    // number of sides closed so far
+    private int sideCount;
+    // tag of each FD
+    private int[] tags;
+    // attributes of side k in the order it is walked in, or null
+    // if that is ascending; null while no side has an order
+    private int[][] orders;
+    // FDs marked for removal by the next compact
+    private final AttributeSet removed = new AttributeSet();
+    // names of the attribute ids, or null for plain numbers
+    private AttributeDictionary dictionary;
+
+    /**
+     * Creates an empty store.
+     */
+    public FDStore() {
+        attributes = new int[64];
+        sideStart = new int[32];
+        sideEnd = new int[32];
+        tags = new int[16];
+    }
+
+    /**
+     * Creates a store holding the FDs of
+     * a pair of parallel lists.
+     *
+     * @param leftSide  LHS of each FD
+     * @param rightSide RHS of each FD, in the same order
+     * @return the new store
+     */
+    public static FDStore of(List<AttributeSet> leftSide, List<AttributeSet> rightSide) {
+        FDStore store = new FDStore();
+        for (int i = 0; i < leftSide.size(); i++) {
+            store.addSide(leftSide.get(i));
+            store.addSide(rightSide.get(i));
+        }
+        return store;
+    }
+
+    /**
+     * Copies the FDs, their tags and the dictionary
+     * into a new store. Attributes of rewritten sides
+     * are left behind.
+     *
+     * @return the copy
+     */
+    public FDStore copy() {
+        FDStore copy = new FDStore();
+        for (int fd = 0; fd < size(); fd++) {
+            copy.copyFD(this, fd);
+            copy.setTag(fd, tag(fd));
+        }
+        copy.dictionary = dictionary;
+        return copy;
+    }
+
+    /**
+     * Adds a copy of an FD of another store.
+     * Its tag is its position in this store.
+     *
+     * @param from store holding the FD
+     * @param fd   position of the FD in that store
+     */
+    public void copyFD(FDStore from, int fd) {
+        for (int k = from.lhsStart(fd); k < from.lhsEnd(fd); k++) {
+            add(from.attributes[k]);
+        }
+        closeSide();
+        for (int k = from.rhsStart(fd); k < from.rhsEnd(fd); k++) {
+            add(from.attributes[k]);
+        }
+        closeSide();
+        if (from.orders != null) {
+            setOrder(sideCount - 2, from.orders[2 * fd]);
+            setOrder(sideCount - 1, from.orders[2 * fd + 1]);
+        }
+    }
+
+    /**
+     * Adds an attribute to the side being built.
+     *
+     * @param attribute attribute to add
+     */
+    public void add(int attribute) {
+        if (attributeCount == attributes.length) {
+            attributes = Arrays.copyOf(attributes, attributes.length * 2);
+        }
+        attributes[attributeCount++] = attribute;
+    }
+
+    /**
+     * Ends the side being built. The first call ends
+     * the LHS of a new FD and the second its RHS.
+     * The attributes of the side are sorted and
+     * duplicates are dropped.
+     */
+    public void closeSide() {
+        int from = openStart;
+        attributeCount = sortRange(from, attributeCount);
+        addSideRange(from, attributeCount);
+    }
+
+    /**
+     * Ends the side being built like closeSide, and
+     * remembers the order a HashSet of the attributes,
+     * added in the order they were given, walks them in.
+     * That is the order the original program took the
+     * attributes of the side in.
+     */
+    public void closeSideKeepingOrder() {
+        int from = openStart;
+        int max = -1;
+        for (int k = from; k < attributeCount; k++) {
+            max = Math.max(max, attributes[k]);
+        }
+        if (max < 16) {
+            // a HashSet starts with 16 buckets, one per attribute here
+            closeSide();
+            return;
+        }
+        int[] given = Arrays.copyOfRange(attributes, from, attributeCount);
+        attributeCount = sortRange(from, attributeCount);
+        addSideRange(from, attributeCount);
+        int distinct = attributeCount - from;
+        int capacity = 16;
+        while (distinct > capacity / 4 * 3) {
+            capacity *= 2;
+        }
+        if (max < capacity) {
+            return;
+        }
+        HashSet<Integer> set = new HashSet<Integer>();
+        for (int a : given) {
+            set.add(a);
+        }
+        int[] order = new int[distinct];
+        int n = 0;
+        boolean ascending = true;
+        for (Integer a : set) {
+            order[n] = a;
+            ascending &= order[n] == attributes[from + n];
+            n++;
+        }
+        if (!ascending) {
+            setOrder(sideCount - 1, order);
+        }
+    }
+
+    /**
+     * @return number of complete FDs in the store
+     */
+    public int size() {
+        return sideCount / 2;
+    }
+
+    /**
+     * @param fd position of the FD
+     * @return index of the first LHS attribute of the FD
+     */
+    public int lhsStart(int fd) {
+        return sideStart[2 * fd];
+    }
+
+    /**
+     * @param fd position of the FD
+     * @return one past the index of the last LHS attribute of the FD
+     */
+    public int lhsEnd(int fd) {
+        return sideEnd[2 * fd];
+    }
+
+    /**
+     * @param fd position of the FD
+     * @return index of the first RHS attribute of the FD
+     */
+    public int rhsStart(int fd) {
+        return sideStart[2 * fd + 1];
+    }
+
+    /**
+     * @param fd position of the FD
+     * @return one past the index of the last RHS attribute of the FD
+     */
+    public int rhsEnd(int fd) {
+        return sideEnd[2 * fd + 1];
+    }
+
+    /**
+     * @param fd position of the FD
+     * @return number of attributes on the LHS of the FD
+     */
+    public int lhsSize(int fd) {
+        return sideEnd[2 * fd] - sideStart[2 * fd];
+    }
+
+    /**
+     * @param fd position of the FD
+     * @return number of attributes on the RHS of the FD
+     */
+    public int rhsSize(int fd) {
+        return sideEnd[2 * fd + 1] - sideStart[2 * fd + 1];
+    }
+
+    /**
+     * @param fd        position of the FD
+     * @param attribute attribute to look for
+     * @return true if the LHS of the FD contains the attribute
+     */
+    public boolean lhsContains(int fd, int attribute) {
+        return Arrays.binarySearch(attributes, sideStart[2 * fd], sideEnd[2 * fd], attribute) >= 0;
+    }
+
+    /**
+     * @param fd position of the FD
+     * @return the tag of the FD
+     */
+    public int tag(int fd) {
+        return tags[fd];
+    }
+
+    /**
+     * @param fd  position of the FD
+     * @param tag the new tag of the FD
+     */
+    public void setTag(int fd, int tag) {
+        tags[fd] = tag;
+    }
+
+    /**
+     * @param index position in the attribute array
+     * @return the attribute stored there
+     */
+    public int attribute(int index) {
+        return attributes[index];
+    }
+
+    /**
+     * @return number of used entries in the attribute array,
+     *         including sides that were rewritten
+     */
+    public int attributeCount() {
+        return attributeCount;
+    }
+
+    /**
+     * @param fd position of the FD
+     * @return the LHS of the FD as a new set
+     */
+    public AttributeSet leftSide(int fd) {
+        return toSet(lhsStart(fd), lhsEnd(fd));
+    }
+
+    /**
+     * @param fd position of the FD
+     * @return the RHS of the FD as a new set
+     */
+    public AttributeSet rightSide(int fd) {
+        return toSet(rhsStart(fd), rhsEnd(fd));
+    }
+
+    /**
+     * @param fd position of the FD
+     * @return the LHS attributes of the FD in the order
+     *         the original program walked them in
+     */
+    public int[] leftSideInOrder(int fd) {
+        return sideInOrder(2 * fd);
+    }
+
+    /**
+     * @param fd position of the FD
+     * @return the RHS attributes of the FD in the order
+     *         the original program walked them in
+     */
+    public int[] rightSideInOrder(int fd) {
+        return sideInOrder(2 * fd + 1);
+    }
+
+    /**
+     * Adds the attributes of both sides of an FD to a set.
+     *
+     * @param fd  position of the FD
+     * @param set set that receives the attributes
+     */
+    public void addAttributes(int fd, AttributeSet set) {
+        for (int k = lhsStart(fd); k < lhsEnd(fd); k++) {
+            set.add(attributes[k]);
+        }
+        for (int k = rhsStart(fd); k < rhsEnd(fd); k++) {
+            set.add(attributes[k]);
+        }
+    }
+
+    /**
+     * Appends the LHS and RHS of every FD
+     * to a pair of lists.
+     *
+     * @param leftSide  list that receives the LHS of each FD
+     * @param rightSide list that receives the RHS of each FD
+     */
+    public void toLists(List<AttributeSet> leftSide, List<AttributeSet> rightSide) {
+        for (int fd = 0; fd < size(); fd++) {
+            leftSide.add(leftSide(fd));
+            rightSide.add(rightSide(fd));
+        }
+    }
+
+    /**
+     * Replaces every attribute a with map(a)
+     * and sorts each side again.
+     *
+     * @param map new value of each attribute
+     */
+    public void renumber(IntUnaryOperator map) {
+        for (int k = 0; k < attributeCount; k++) {
+            attributes[k] = map.applyAsInt(attributes[k]);
+        }
+        for (int side = 0; side < sideCount; side++) {
+            Arrays.sort(attributes, sideStart[side], sideEnd[side]);
+            if (orders != null && orders[side] != null) {
+                int[] order = orders[side].clone();
+                for (int n = 0; n < order.length; n++) {
+                    order[n] = map.applyAsInt(order[n]);
+                }
+                orders[side] = order;
+            }
+        }
+    }
+
+    /**
+     * Forgets the order of every side, so all
+     * sides are walked in ascending order.
+     */
+    public void forgetOrders() {
+        orders = null;
+    }
+
+    /**
+     * Replaces every attribute a with map(a), where map
+     * may send several attributes to the same one. Each
+     * side is written again at the end of the attribute
+     * array, sorted and without duplicates, so sides that
+     * shared attributes before no longer do.
+     *
+     * @param map new value of each attribute
+     */
+    public void collapse(IntUnaryOperator map) {
+        for (int side = 0; side < sideCount; side++) {
+            int from = attributeCount;
+            for (int k = sideStart[side]; k < sideEnd[side]; k++) {
+                add(map.applyAsInt(attributes[k]));
+            }
+            attributeCount = sortRange(from, attributeCount);
+            sideStart[side] = from;
+            sideEnd[side] = attributeCount;
+        }
+        openStart = attributeCount;
+        orders = null;
+    }
+
+    /**
+     * Replaces the LHS of one FD.
+     *
+     * @param fd  position of the FD
+     * @param lhs the new left hand side
+     */
+    public void setLeftSide(int fd, AttributeSet lhs) {
+        setSide(2 * fd, lhs);
+    }
+
+    /**
+     * Replaces the RHS of one FD.
+     *
+     * @param fd  position of the FD
+     * @param rhs the new right hand side
+     */
+    public void setRightSide(int fd, AttributeSet rhs) {
+        setSide(2 * fd + 1, rhs);
+    }
+
+    /**
+     * Marks an FD for removal. Positions
+     * do not change until compact is called.
+     *
+     * @param fd position of the FD
+     */
+    public void remove(int fd) {
+        removed.add(fd);
+    }
+
+    /**
+     * @param fd position of the FD
+     * @return true if the FD is marked for removal
+     */
+    public boolean isRemoved(int fd) {
+        return removed.contains(fd);
+    }
+
+    /**
+     * Drops the FDs marked for removal. The other
+     * FDs keep their order and move down to fill the gaps.
+     */
+    public void compact() {
+        if (removed.isEmpty()) {
+            return;
+        }
+        int kept = 0;
+        for (int fd = 0; fd < size(); fd++) {
+            if (!removed.contains(fd)) {
+                sideStart[2 * kept] = sideStart[2 * fd];
+                sideEnd[2 * kept] = sideEnd[2 * fd];
+                sideStart[2 * kept + 1] = sideStart[2 * fd + 1];
+                sideEnd[2 * kept + 1] = sideEnd[2 * fd + 1];
+                if (orders != null) {
+                    orders[2 * kept] = orders[2 * fd];
+                    orders[2 * kept + 1] = orders[2 * fd + 1];
+                }
+                tags[kept] = tags[fd];
+                kept++;
+            }
+        }
+        sideCount = 2 * kept;
+        removed.clear();
+    }
+
+    /**
+     * The split method applies the splitting rule:
+     * an FD X->AB becomes X->A and X->B. FDs with a
+     * single RHS attribute keep their order, and the new
+     * FDs follow them in the order of the FDs they came
+     * from, RHS attributes in the order the side is walked
+     * in. The new FDs share the attributes, the LHS order
+     * and the tag of the old one.
+     */
+    public void split() {
+        int fdCount = size();
+        for (int fd = 0; fd < fdCount; fd++) {
+            if (rhsSize(fd) > 1) {
+                int lhsStart = lhsStart(fd);
+                int lhsEnd = lhsEnd(fd);
+                int[] order = orders == null ? null : orders[2 * fd + 1];
+                for (int n = 0; n < rhsSize(fd); n++) {
+                    int k = rhsStart(fd) + n;
+                    if (order != null) {
+                        k = Arrays.binarySearch(attributes, rhsStart(fd), rhsEnd(fd), order[n]);
+                    }
+                    addSideRange(lhsStart, lhsEnd);
+                    addSideRange(k, k + 1);
+                    tags[size() - 1] = tags[fd];
+                    if (orders != null) {
+                        setOrder(sideCount - 2, orders[2 * fd]);
+                    }
+                }
+                remove(fd);
+            }
+        }
+        compact();
+    }
+
+    /**
+     * The mergeByLeftSide method applies the combining
+     * rule: all FDs with the same LHS are merged into the
+     * first of them, whose RHS becomes the union of their
+     * RHS. The merged FDs keep the order in which their
+     * LHS first appears, and the tag of the first FD.
+     *
+     * @return true if any FDs were merged
+     */
+    public boolean mergeByLeftSide() {
+        int fdCount = size();
+        // open addressing table of the first FD with each LHS, plus one
+        int[] slots = new int[Integer.highestOneBit(Math.max(1, fdCount) * 2) * 2];
+        int mask = slots.length - 1;
+        // union of the RHS of each FD that absorbed others
+        HashMap<Integer, AttributeSet> merged = new HashMap<Integer, AttributeSet>();
+        for (int fd = 0; fd < fdCount; fd++) {
+            int slot = lhsHash(fd) & mask;
+            while (slots[slot] != 0 && !sameLeftSide(slots[slot] - 1, fd)) {
+                slot = (slot + 1) & mask;
+            }
+            if (slots[slot] == 0) {
+                // first FD with this LHS
+                slots[slot] = fd + 1;
+                continue;
+            }
+            int first = slots[slot] - 1;
+            AttributeSet union = merged.get(first);
+            if (union == null) {
+                union = rightSide(first);
+                merged.put(first, union);
+            }
+            for (int k = rhsStart(fd); k < rhsEnd(fd); k++) {
+                union.add(attributes[k]);
+            }
+            remove(fd);
+        }
+        if (merged.isEmpty()) {
+            return false;
+        }
+        for (HashMap.Entry<Integer, AttributeSet> e : merged.entrySet()) {
+            setRightSide(e.getKey(), e.getValue());
+        }
+        compact();
+        return true;
+    }
+
+    /**
+     * @return the names of the attribute ids, or null if
+     *         the attributes are plain numbers
+     */
+    public AttributeDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * @param dictionary the names of the attribute ids
+     */
+    public void setDictionary(AttributeDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    // add a closed side made of the given set
+    private void addSide(AttributeSet set) {
+        for (int a = set.nextAttribute(0); a >= 0; a = set.nextAttribute(a + 1)) {
+            add(a);
+        }
+        closeSide();
+    }
+
+    // write a side at the end of the attribute array and point side k at it
+    private void setSide(int k, AttributeSet set) {
+        int from = attributeCount;
+        for (int a = set.nextAttribute(0); a >= 0; a = set.nextAttribute(a + 1)) {
+            add(a);
+        }
+        openStart = attributeCount;
+        sideStart[k] = from;
+        sideEnd[k] = attributeCount;
+        if (orders != null) {
+            orders[k] = null;
+        }
+    }
+
+    // sort a range of the attribute array and keep one copy
+    // of each attribute, returning the new end of the range
+    private int sortRange(int from, int to) {
+        Arrays.sort(attributes, from, to);
+        int end = from;
+        for (int k = from; k < to; k++) {
+            if (k == from || attributes[k] != attributes[end - 1]) {
+                attributes[end++] = attributes[k];
+            }
+        }
+        return end;
+    }
+
+    // add a side made of a range of the attribute array
+    private void addSideRange(int from, int to) {
+        if (sideCount == sideEnd.length) {
+            sideStart = Arrays.copyOf(sideStart, sideStart.length * 2);
+            sideEnd = Arrays.copyOf(sideEnd, sideEnd.length * 2);
+        }
+        sideStart[sideCount] = from;
+        sideEnd[sideCount] = to;
+        if (orders != null) {
+            setOrder(sideCount, null);
+        }
+        sideCount++;
+        openStart = attributeCount;
+        if (sideCount % 2 == 0) {
+            // an FD is complete, tag it with its position
+            int fd = sideCount / 2 - 1;
+            if (fd == tags.length) {
+                tags = Arrays.copyOf(tags, tags.length * 2);
+            }
+            tags[fd] = fd;
+        }
+    }
+
+    // the attributes of side k in the order it is walked in
+    private int[] sideInOrder(int k) {
+        int[] order = orders == null ? null : orders[k];
+        if (order != null) {
+            return order.clone();
+        }
+        return Arrays.copyOfRange(attributes, sideStart[k], sideEnd[k]);
+    }
+
+    // remember the order of side k, null for ascending
+    private void setOrder(int k, int[] order) {
+        if (orders == null) {
+            if (order == null) {
+                return;
+            }
+            orders = new int[sideStart.length][];
+        } else if (orders.length < sideStart.length) {
+            orders = Arrays.copyOf(orders, sideStart.length);
+        }
+        orders[k] = order;
+    }
+
+    // hash of the LHS of an FD
+    private int lhsHash(int fd) {
+        int h = 1;
+        for (int k = lhsStart(fd); k < lhsEnd(fd); k++) {
+            h = 31 * h + attributes[k];
+        }
+        // spread the bits, the table uses the low ones
+        return h ^ (h >>> 16);
+    }
+
+    // true if two FDs have the same LHS
+    private boolean sameLeftSide(int a, int b) {
+        return Arrays.equals(attributes, lhsStart(a), lhsEnd(a), attributes, lhsStart(b), lhsEnd(b));
+    }
+
+    // copy a range of attributes into a set
+    private AttributeSet toSet(int from, int to) {
+        AttributeSet set = new AttributeSet(to > from ? attributes[to - 1] + 1 : 0);
+        for (int k = from; k < to; k++) {
+            set.add(attributes[k]);
+        }
+        return set;
+    }
+}
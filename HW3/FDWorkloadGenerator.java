@@ -0,0 +1,147 @@
+import java.util.Random;
+
+/**
+ * The FDWorkloadGenerator class builds sets of
+ * functional dependencies (FDs) for benchmarks.
+ * The same shape, sizes and seed always give the
+ * same FDs. Attributes are numbered from 1.
+ *
+ * Shapes:
+ * random  - LHS of 1 to 3 and RHS of 1 to 2 random attributes
+ * chain   - a chain 1->2->...->n, the rest are redundant shortcuts a->b with a < b
+ * wide    - LHS of up to 16 attributes, many of them extraneous
+ * cycle   - cycles of 8 attributes that determine each other, joined by composite FDs
+ * dense   - many FDs over a small pool of overlapping LHS attributes
+ *
+ * Usage: java FDWorkloadGenerator shape attributes fds seed
+ * prints the FDs in the lhs;rhs format read by ModifiedSynthesis.
+ */
+
+public class FDWorkloadGenerator {
+
+    /**
+     * The Shape enum names the families of FD sets.
+     */
+    public enum Shape {
+        RANDOM, CHAIN, WIDE, CYCLE, DENSE
+    }
+
+    // length of each cycle in the cycle shape
+    private static final int CYCLE_LENGTH = 8;
+    // largest LHS in the wide shape
+    private static final int WIDE_LHS = 16;
+
+    public static void main(String args[]) {
+        if (args.length != 4) {
+            System.out.println("Usage: java FDWorkloadGenerator random|chain|wide|cycle|dense attributes fds seed");
+            return;
+        }
+        FDStore store = generate(Shape.valueOf(args[0].toUpperCase()), Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]), Long.parseLong(args[3]));
+        System.out.print(toText(store));
+    }
+
+    /**
+     * The generate method builds one FD set.
+     *
+     * @param shape      family of FD sets
+     * @param attributes number of attributes, at least 2
+     * @param fds        number of FDs
+     * @param seed       seed of the random choices
+     * @return store holding the FDs
+     */
+    public static FDStore generate(Shape shape, int attributes, int fds, long seed) {
+        if (attributes < 2) {
+            throw new IllegalArgumentException("need at least 2 attributes");
+        }
+        Random random = new Random(seed);
+        FDStore store = new FDStore();
+        for (int i = 0; i < fds; i++) {
+            switch (shape) {
+                case RANDOM:
+                    addRandom(store, random, attributes, 1 + random.nextInt(3));
+                    addRandom(store, random, attributes, 1 + random.nextInt(2));
+                    break;
+                case CHAIN:
+                    if (i < attributes - 1) {
+                        // the chain itself
+                        add(store, i + 1);
+                        add(store, i + 2);
+                    } else {
+                        // a shortcut the chain already implies
+                        int a = 1 + random.nextInt(attributes - 1);
+                        add(store, a);
+                        add(store, a + 1 + random.nextInt(attributes - a));
+                    }
+                    break;
+                case WIDE:
+                    addRandom(store, random, attributes, 1 + random.nextInt(Math.min(WIDE_LHS, attributes - 1)));
+                    addRandom(store, random, attributes, 1);
+                    break;
+                case CYCLE:
+                    if (i % 2 == 0) {
+                        // next attribute around one of the cycles
+                        int a = 1 + random.nextInt(attributes);
+                        int start = (a - 1) / CYCLE_LENGTH * CYCLE_LENGTH;
+                        int length = Math.min(CYCLE_LENGTH, attributes - start);
+                        add(store, a);
+                        add(store, start + (a - start) % length + 1);
+                    } else {
+                        // a composite FD joining attributes of different cycles
+                        addRandom(store, random, attributes, 2);
+                        addRandom(store, random, attributes, 1);
+                    }
+                    break;
+                default:
+                    // LHS attributes come from a small pool so they overlap a lot
+                    int pool = Math.max(2, (int) Math.sqrt(attributes));
+                    addRandom(store, random, pool, 1 + random.nextInt(Math.min(3, pool)));
+                    addRandom(store, random, attributes, 1 + random.nextInt(3));
+                    break;
+            }
+        }
+        return store;
+    }
+
+    /**
+     * The toText method writes FDs in the
+     * lhs;rhs format, one FD per line.
+     *
+     * @param store the FDs
+     * @return the text
+     */
+    public static String toText(FDStore store) {
+        StringBuilder sb = new StringBuilder();
+        for (int fd = 0; fd < store.size(); fd++) {
+            appendSide(store, store.lhsStart(fd), store.lhsEnd(fd), sb);
+            sb.append(';');
+            appendSide(store, store.rhsStart(fd), store.rhsEnd(fd), sb);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    // add a side holding a single attribute
+    private static void add(FDStore store, int attribute) {
+        store.add(attribute);
+        store.closeSide();
+    }
+
+    // add a side of up to count random attributes from 1 to attributes
+    private static void addRandom(FDStore store, Random random, int attributes, int count) {
+        for (int k = 0; k < count; k++) {
+            store.add(1 + random.nextInt(attributes));
+        }
+        store.closeSide();
+    }
+
+    // write the attributes of one side, delimited by comma
+    private static void appendSide(FDStore store, int from, int to, StringBuilder sb) {
+        for (int k = from; k < to; k++) {
+            if (k > from) {
+                sb.append(',');
+            }
+            sb.append(store.attribute(k));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The ImplicationIndex class answers batches of
+ * questions about a fixed set F of functional
+ * dependencies (FDs): does X->Y follow from F, is X a
+ * superkey of R, and what is the closure of X.
+ *
+ * F is copied and indexed once, attribute -> FDs, by a
+ * ClosureEngine, so a question costs time for the FDs its
+ * closure reaches instead of a scan of all of F. Every
+ * closure stops as soon as it holds what was asked for:
+ * the RHS, or all of R for a superkey.
+ *
+ * A batch is sorted by LHS, and questions with the same
+ * LHS share one closure that stops once it holds all of
+ * their RHSs. The closure of X is part of the closure of
+ * every superset of X, so a LHS that follows one of its
+ * subsets in the sorted order, as X does X plus more
+ * attributes, starts from what the subset reached. The
+ * sorted LHSs are cut into runs that are answered in
+ * parallel on the common fork-join pool.
+ */
+
+public class ImplicationIndex {
+
+    // distinct LHSs answered one after the other by one task
+    private static final int RUN = 64;
+
+    // closures under F
+    private final ClosureEngine closureEngine;
+    // every attribute of R
+    private final AttributeSet relation;
+
+    /**
+     * Builds the index over a copy of F, so
+     * the store may change afterwards.
+     *
+     * @param fds      the FDs of F
+     * @param relation every attribute of R
+     */
+    public ImplicationIndex(FDStore fds, AttributeSet relation) {
+        this.closureEngine = new ClosureEngine(fds.copy());
+        this.relation = new AttributeSet(relation);
+    }
+
+    /**
+     * The implies method answers one question.
+     *
+     * @param lhs the LHS X
+     * @param rhs the RHS Y
+     * @return true if X->Y follows from F
+     */
+    public boolean implies(AttributeSet lhs, AttributeSet rhs) {
+        return closureEngine.implies(lhs, rhs, -1);
+    }
+
+    /**
+     * The implies method answers a batch of questions.
+     *
+     * @param lhs the LHS of each question
+     * @param rhs the RHS of each question
+     * @return for each question, true if lhs -> rhs follows from F
+     */
+    public boolean[] implies(List<AttributeSet> lhs, List<AttributeSet> rhs) {
+        if (lhs.size() != rhs.size()) {
+            throw new IllegalArgumentException("batch has " + lhs.size() + " LHSs and " + rhs.size() + " RHSs");
+        }
+        AttributeSet[] closures = closures(lhs, rhs);
+        boolean[] answers = new boolean[lhs.size()];
+        for (int q = 0; q < answers.length; q++) {
+            answers[q] = closures[q].containsAll(rhs.get(q));
+        }
+        return answers;
+    }
+
+    /**
+     * The isSuperKey method answers a batch of questions.
+     *
+     * @param sets the sets asked about
+     * @return for each set, true if its closure is all of R
+     */
+    public boolean[] isSuperKey(List<AttributeSet> sets) {
+        List<AttributeSet> targets = new ArrayList<AttributeSet>(sets.size());
+        for (int q = 0; q < sets.size(); q++) {
+            targets.add(relation);
+        }
+        AttributeSet[] closures = closures(sets, targets);
+        boolean[] answers = new boolean[sets.size()];
+        for (int q = 0; q < answers.length; q++) {
+            answers[q] = closures[q].containsAll(relation);
+        }
+        return answers;
+    }
+
+    /**
+     * The closures method answers a batch of questions.
+     * Sets with the same attributes may share one closure.
+     *
+     * @param sets the sets asked about
+     * @return the closure of each set
+     */
+    public List<AttributeSet> closures(List<AttributeSet> sets) {
+        return Arrays.asList(closures(sets, null));
+    }
+
+    // closures of a batch of LHSs, each of which may stop once it holds
+    // its target, or that are full closures if targets is null
+    private AttributeSet[] closures(List<AttributeSet> lhs, List<AttributeSet> targets) {
+        int count = lhs.size();
+        // the questions by LHS, so equal LHSs are next to each other
+        // and a LHS comes right before the ones it is a prefix of
+        int[][] attributes = new int[count][];
+        for (int q = 0; q < count; q++) {
+            attributes[q] = lhs.get(q).toArray();
+        }
+        Integer[] boxed = new Integer[count];
+        for (int q = 0; q < count; q++) {
+            boxed[q] = q;
+        }
+        Arrays.sort(boxed, (p, q) -> Arrays.compare(attributes[p], attributes[q]));
+        int[] order = new int[count];
+        for (int q = 0; q < count; q++) {
+            order[q] = boxed[q];
+        }
+
+        // the questions with the same LHS are order[groupStart[g]] to
+        // order[groupStart[g + 1] - 1]
+        int[] groupStart = new int[count + 1];
+        int groups = 0;
+        for (int k = 0; k < count; k++) {
+            if (k == 0 || !Arrays.equals(attributes[order[k]], attributes[order[k - 1]])) {
+                groupStart[groups++] = k;
+            }
+        }
+        groupStart[groups] = count;
+        int groupCount = groups;
+
+        AttributeSet[] closures = new AttributeSet[count];
+        int runs = (groupCount + RUN - 1) / RUN;
+        IntStream.range(0, runs).parallel().forEach(run -> {
+            AttributeSet previous = null;
+            AttributeSet reached = null;
+            for (int g = run * RUN; g < Math.min(groupCount, (run + 1) * RUN); g++) {
+                AttributeSet x = lhs.get(order[groupStart[g]]);
+                // start from the closure of the LHS before if it is a subset
+                AttributeSet start = x;
+                if (previous != null && x.containsAll(previous)) {
+                    start = new AttributeSet(reached);
+                    start.addAll(x);
+                }
+                AttributeSet closure;
+                if (targets == null) {
+                    closure = closureEngine.closure(start);
+                } else {
+                    AttributeSet target = new AttributeSet();
+                    for (int k = groupStart[g]; k < groupStart[g + 1]; k++) {
+                        target.addAll(targets.get(order[k]));
+                    }
+                    closure = closureEngine.closureUntil(start, target);
+                }
+                for (int k = groupStart[g]; k < groupStart[g + 1]; k++) {
+                    closures[order[k]] = closure;
+                }
+                previous = x;
+                reached = closure;
+            }
+        });
+        return closures;
+    }
+}
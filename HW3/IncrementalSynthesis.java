@@ -0,0 +1,479 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The IncrementalSynthesis class keeps the 3NF
+ * decomposition of a relation up to date while
+ * functional dependencies (FDs) are added and retracted
+ * one at a time. Each FD gets an id when it is added,
+ * and keeps it until it is retracted.
+ *
+ * The work is split by connected component of the FDs
+ * (see ComponentSynthesis). A change only touches the
+ * component of the FD that changed, so after a change
+ * the components whose FDs are all as before are taken
+ * as they are, with the minimal basis, merged FDs,
+ * relations and closure cache of their engine.
+ *
+ * Inside a component the minimal basis depends on the
+ * order of the FDs, so most changes decompose the whole
+ * component again, from its FDs, with a new engine and an
+ * empty closure cache. When all FDs form one component
+ * a change then costs about as much as a full run. Two
+ * kinds of change are known to leave the decomposition
+ * as it is, and are absorbed right away at the cost of
+ * one closure or one pass over the FDs of the component:
+ * adding an FD that the component already implies, and
+ * retracting an FD that a full run drops as redundant
+ * before it looks at any other FD. In both cases the FD
+ * is one a full run tests first, that is its pieces come
+ * last in the split order (see FDStore.split), and the
+ * redundancy loop goes on exactly as without it.
+ *
+ * The result is the same as a SynthesisEngine run over
+ * the FDs left, in the order of their ids.
+ *
+ * Usage: java IncrementalSynthesis attributes steps seed
+ * adds and retracts random FDs and checks the result of
+ * every step against a full run.
+ */
+
+public class IncrementalSynthesis {
+
+    // every attribute of the relation
+    private final AttributeSet relation;
+    // number of closures each component may cache
+    private final int cacheSize;
+    // LHS and RHS of each FD by id, null once retracted
+    private final ArrayList<AttributeSet> leftSides = new ArrayList<AttributeSet>();
+    private final ArrayList<AttributeSet> rightSides = new ArrayList<AttributeSet>();
+    // number of FDs not retracted
+    private int size;
+    // decomposed components of the last run, by the ids of their FDs
+    private HashMap<AttributeSet, ComponentSynthesis.Component> components =
+            new HashMap<AttributeSet, ComponentSynthesis.Component>();
+    // the components of the last run, in the order of their first FD
+    private ComponentSynthesis.Component[] current;
+    // the decomposition, or null after a change
+    private List<AttributeSet> relations;
+    // told about phases and closures, or null
+    private SynthesisListener listener;
+    // components taken as they were from an earlier run
+    private long reused;
+    // components decomposed
+    private long rebuilt;
+    // changes absorbed without decomposing anything
+    private long absorbed;
+
+    /**
+     * Creates an incremental synthesis
+     * with no FDs yet.
+     *
+     * @param relation  every attribute of the relation
+     * @param cacheSize number of closures each component may cache
+     */
+    public IncrementalSynthesis(AttributeSet relation, int cacheSize) {
+        this.relation = new AttributeSet(relation);
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * The addFD method adds an FD. The sets are copied.
+     *
+     * @param lhs left hand side of the FD
+     * @param rhs right hand side of the FD
+     * @return the id of the FD
+     * @throws IllegalArgumentException if a side is empty or
+     *                                  the FD is not inside the relation
+     */
+    public int addFD(AttributeSet lhs, AttributeSet rhs) {
+        if (lhs.isEmpty() || rhs.isEmpty()) {
+            throw new IllegalArgumentException("FD has an empty side");
+        }
+        if (!relation.containsAll(lhs) || !relation.containsAll(rhs)) {
+            throw new IllegalArgumentException("FDs use attributes outside the relation");
+        }
+        leftSides.add(new AttributeSet(lhs));
+        rightSides.add(new AttributeSet(rhs));
+        size++;
+        int id = leftSides.size() - 1;
+        if (relations != null && !absorbAdded(id)) {
+            relations = null;
+        }
+        return id;
+    }
+
+    /**
+     * The removeFD method retracts an FD.
+     *
+     * @param id id the FD got from addFD
+     * @throws IllegalArgumentException if there is no such FD
+     */
+    public void removeFD(int id) {
+        if (id < 0 || id >= leftSides.size() || leftSides.get(id) == null) {
+            throw new IllegalArgumentException("no FD with id " + id);
+        }
+        if (relations != null && !absorbRemoved(id)) {
+            relations = null;
+        }
+        leftSides.set(id, null);
+        rightSides.set(id, null);
+        size--;
+    }
+
+    /**
+     * @return number of FDs not retracted
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The setListener method sets the listener told
+     * about the phases of the components decomposed
+     * from now on.
+     *
+     * @param listener the listener, or null for none
+     */
+    public void setListener(SynthesisListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return number of components taken as they were from an earlier run
+     */
+    public long getComponentsReused() {
+        return reused;
+    }
+
+    /**
+     * @return number of components decomposed
+     */
+    public long getComponentsRebuilt() {
+        return rebuilt;
+    }
+
+    /**
+     * @return number of changes absorbed without decomposing anything
+     */
+    public long getChangesAbsorbed() {
+        return absorbed;
+    }
+
+    /**
+     * The decompose method brings the 3NF
+     * relations up to date with the FDs.
+     *
+     * @return list of relation schemas
+     * @throws IllegalArgumentException if there are no FDs
+     */
+    public List<AttributeSet> decompose() {
+        if (relations != null) {
+            return relations;
+        }
+        if (size == 0) {
+            throw new IllegalArgumentException("no functional dependencies");
+        }
+
+        // the FDs left, each tagged with its id
+        FDStore all = new FDStore();
+        for (int id = 0; id < leftSides.size(); id++) {
+            if (leftSides.get(id) != null) {
+                addFD(all, leftSides.get(id), rightSides.get(id));
+                all.setTag(all.size() - 1, id);
+            }
+        }
+
+        // the ids of the FDs of each component
+        int[] parent = ComponentSynthesis.components(all, relation);
+        AttributeSet[] idsOf = new AttributeSet[parent.length];
+        List<AttributeSet> groups = new ArrayList<AttributeSet>();
+        for (int fd = 0; fd < all.size(); fd++) {
+            int root = ComponentSynthesis.find(parent, all.attribute(all.lhsStart(fd)));
+            if (idsOf[root] == null) {
+                idsOf[root] = new AttributeSet();
+                groups.add(idsOf[root]);
+            }
+            idsOf[root].add(all.tag(fd));
+        }
+
+        // take the components that did not change, decompose the others
+        ComponentSynthesis.Component[] next = new ComponentSynthesis.Component[groups.size()];
+        List<Integer> changed = new ArrayList<Integer>();
+        for (int c = 0; c < next.length; c++) {
+            next[c] = components.get(groups.get(c));
+            if (next[c] == null) {
+                changed.add(c);
+            }
+        }
+        reused += next.length - changed.size();
+        rebuilt += changed.size();
+        changed.parallelStream().forEach(c -> next[c] = newComponent(groups.get(c)).decompose(true));
+
+        // components that are gone are dropped with their engines
+        components = new HashMap<AttributeSet, ComponentSynthesis.Component>();
+        for (int c = 0; c < next.length; c++) {
+            components.put(groups.get(c), next[c]);
+        }
+        current = next;
+        relations = ComponentSynthesis.combine(next, relation, listener);
+        return relations;
+    }
+
+    /**
+     * The minimalBasis method returns the minimal
+     * basis of the FDs, before FDs with the same LHS
+     * are merged, in the order a full run finds it.
+     *
+     * @return a new store with the minimal basis
+     * @throws IllegalArgumentException if there are no FDs
+     */
+    public FDStore minimalBasis() {
+        decompose();
+        int count = 0;
+        for (ComponentSynthesis.Component component : current) {
+            count += component.basis.size();
+        }
+        long[] keys = new long[count];
+        int k = 0;
+        for (ComponentSynthesis.Component component : current) {
+            for (int i = 0; i < component.basis.size(); i++) {
+                keys[k++] = component.order[component.basis.tag(i)];
+            }
+        }
+        // place each FD of each component where its order key goes
+        int[] rank = ComponentSynthesis.ranks(keys);
+        FDStore[] from = new FDStore[count];
+        int[] position = new int[count];
+        k = 0;
+        for (ComponentSynthesis.Component component : current) {
+            for (int i = 0; i < component.basis.size(); i++, k++) {
+                from[rank[k]] = component.basis;
+                position[rank[k]] = i;
+            }
+        }
+        FDStore basis = new FDStore();
+        for (int fd = 0; fd < count; fd++) {
+            basis.copyFD(from[fd], position[fd]);
+        }
+        return basis;
+    }
+
+    // absorb a new FD that the component holding all of its attributes
+    // implies, if a full run tests its pieces before any other FD: they
+    // are dropped one after the other and the loop goes on as before
+    private boolean absorbAdded(int id) {
+        AttributeSet lhs = leftSides.get(id);
+        AttributeSet rhs = rightSides.get(id);
+        AttributeSet ids = null;
+        for (HashMap.Entry<AttributeSet, ComponentSynthesis.Component> e : components.entrySet()) {
+            AttributeSet attributes = e.getValue().attributes;
+            if (attributes.containsAll(lhs) && attributes.containsAll(rhs)) {
+                ids = e.getKey();
+                break;
+            }
+        }
+        // a single RHS attribute goes before the pieces of other FDs
+        if (ids == null || (rhs.size() == 1 && hasSplitFDs(ids))) {
+            return false;
+        }
+        ComponentSynthesis.Component component = components.get(ids);
+        if (!component.engine.FindClosure(lhs).containsAll(rhs)) {
+            return false;
+        }
+        AttributeSet grown = new AttributeSet(ids);
+        grown.add(id);
+        components.remove(ids);
+        components.put(grown, component);
+        absorbed++;
+        return true;
+    }
+
+    // absorb the retraction of an FD whose pieces a full run tested
+    // before any other FD and dropped, if its component stays whole
+    private boolean absorbRemoved(int id) {
+        AttributeSet ids = null;
+        for (AttributeSet key : components.keySet()) {
+            if (key.contains(id)) {
+                ids = key;
+                break;
+            }
+        }
+        if (ids == null || ids.size() == 1) {
+            return false;
+        }
+        // single RHS FDs come in id order, then the pieces of the others
+        boolean split = rightSides.get(id).size() > 1;
+        for (int other = ids.nextAttribute(id + 1); other >= 0; other = ids.nextAttribute(other + 1)) {
+            if (!split || rightSides.get(other).size() > 1) {
+                return false;
+            }
+        }
+        if (!split && hasSplitFDs(ids)) {
+            return false;
+        }
+        ComponentSynthesis.Component component = components.get(ids);
+        for (int i = 0; i < component.basis.size(); i++) {
+            long key = component.order[component.basis.tag(i)];
+            if ((key < 1L << 62 ? key : key >>> 31 & Integer.MAX_VALUE) == id) {
+                return false;
+            }
+        }
+        // the other FDs must still join every attribute of the component
+        FDStore rest = new FDStore();
+        for (int other = ids.nextAttribute(0); other >= 0; other = ids.nextAttribute(other + 1)) {
+            if (other != id) {
+                addFD(rest, leftSides.get(other), rightSides.get(other));
+            }
+        }
+        int[] parent = ComponentSynthesis.components(rest, relation);
+        int root = ComponentSynthesis.find(parent, component.attributes.nextAttribute(0));
+        for (int a = component.attributes.nextAttribute(0); a >= 0; a = component.attributes.nextAttribute(a + 1)) {
+            if (ComponentSynthesis.find(parent, a) != root) {
+                return false;
+            }
+        }
+        AttributeSet shrunk = new AttributeSet(ids);
+        shrunk.remove(id);
+        components.remove(ids);
+        components.put(shrunk, component);
+        absorbed++;
+        return true;
+    }
+
+    // true if one of the FDs has more than one RHS attribute
+    private boolean hasSplitFDs(AttributeSet ids) {
+        for (int id = ids.nextAttribute(0); id >= 0; id = ids.nextAttribute(id + 1)) {
+            if (rightSides.get(id).size() > 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the engine of a component, its FDs split
+    // in the order a full run splits them
+    private ComponentSynthesis.Component newComponent(AttributeSet ids) {
+        FDStore fds = new FDStore();
+        AttributeSet attributes = new AttributeSet();
+        int count = 0;
+        for (int id = ids.nextAttribute(0); id >= 0; id = ids.nextAttribute(id + 1)) {
+            count += rightSides.get(id).size();
+        }
+        long[] order = new long[count];
+        // FDs with one RHS attribute keep their place
+        for (int id = ids.nextAttribute(0); id >= 0; id = ids.nextAttribute(id + 1)) {
+            if (rightSides.get(id).size() == 1) {
+                order[fds.size()] = id;
+                addFD(fds, leftSides.get(id), rightSides.get(id));
+            }
+            attributes.addAll(leftSides.get(id));
+            attributes.addAll(rightSides.get(id));
+        }
+        // and the pieces of the others follow them, see FDStore.split
+        for (int id = ids.nextAttribute(0); id >= 0; id = ids.nextAttribute(id + 1)) {
+            AttributeSet rhs = rightSides.get(id);
+            if (rhs.size() > 1) {
+                for (int b = rhs.nextAttribute(0); b >= 0; b = rhs.nextAttribute(b + 1)) {
+                    order[fds.size()] = 1L << 62 | (long) id << 31 | b;
+                    addFD(fds, leftSides.get(id), AttributeSet.of(b));
+                }
+            }
+        }
+        return new ComponentSynthesis.Component(fds, order, attributes, cacheSize, listener);
+    }
+
+    // add an FD made of two sets to a store
+    private static void addFD(FDStore fds, AttributeSet lhs, AttributeSet rhs) {
+        for (int a = lhs.nextAttribute(0); a >= 0; a = lhs.nextAttribute(a + 1)) {
+            fds.add(a);
+        }
+        fds.closeSide();
+        for (int a = rhs.nextAttribute(0); a >= 0; a = rhs.nextAttribute(a + 1)) {
+            fds.add(a);
+        }
+        fds.closeSide();
+    }
+
+    public static void main(String args[]) {
+        if (args.length != 3) {
+            System.out.println("Usage: java IncrementalSynthesis attributes steps seed");
+            System.exit(1);
+        }
+        int attributes = Integer.parseInt(args[0]);
+        int steps = Integer.parseInt(args[1]);
+        Random random = new Random(Long.parseLong(args[2]));
+
+        AttributeSet relation = new AttributeSet(attributes);
+        relation.addRange(0, attributes);
+        IncrementalSynthesis incremental = new IncrementalSynthesis(relation, SynthesisEngine.DEFAULT_CACHE_SIZE);
+        List<Integer> ids = new ArrayList<Integer>();
+        // attributes come in groups, so there are several components
+        int groups = 1 + attributes / 6;
+
+        for (int step = 1; step <= steps; step++) {
+            if (ids.isEmpty() || random.nextInt(3) != 0) {
+                int group = random.nextInt(groups);
+                ids.add(incremental.addFD(randomSide(random, attributes, groups, group, 3),
+                        randomSide(random, attributes, groups, group, 2)));
+            } else {
+                incremental.removeFD(ids.remove(random.nextInt(ids.size())));
+            }
+            if (ids.isEmpty()) {
+                continue;
+            }
+
+            // a full run over the same FDs
+            List<AttributeSet> lhs = new ArrayList<AttributeSet>();
+            List<AttributeSet> rhs = new ArrayList<AttributeSet>();
+            for (int id = 0; id < incremental.leftSides.size(); id++) {
+                if (incremental.leftSides.get(id) != null) {
+                    lhs.add(incremental.leftSides.get(id));
+                    rhs.add(incremental.rightSides.get(id));
+                }
+            }
+            SynthesisEngine full = new SynthesisEngine(lhs, rhs, relation, SynthesisEngine.DEFAULT_CACHE_SIZE);
+            full.setComponentSplitting(false);
+            FDStore expectedBasis = FDStore.of(lhs, rhs);
+            SynthesisEngine basisEngine = new SynthesisEngine(expectedBasis, relation, 0);
+            basisEngine.FindMinBasis();
+
+            List<AttributeSet> expected = full.decompose();
+            List<AttributeSet> actual = incremental.decompose();
+            FDStore basis = incremental.minimalBasis();
+            if (!expected.equals(actual) || !sameFDs(expectedBasis, basis)) {
+                System.out.println("step " + step + ": expected " + expected + " but got " + actual);
+                System.exit(1);
+            }
+        }
+        System.out.println(steps + " steps ok, " + incremental.getComponentsReused() + " components reused, "
+                + incremental.getComponentsRebuilt() + " decomposed, " + incremental.getChangesAbsorbed()
+                + " changes absorbed");
+    }
+
+    // a random side of up to max attributes of one group
+    private static AttributeSet randomSide(Random random, int attributes, int groups, int group, int max) {
+        AttributeSet side = new AttributeSet();
+        int count = 1 + random.nextInt(max);
+        for (int k = 0; k < count; k++) {
+            int a = group + groups * random.nextInt(Math.max(1, (attributes - group + groups - 1) / groups));
+            side.add(Math.min(a, attributes - 1));
+        }
+        return side;
+    }
+
+    // true if two stores hold the same FDs in the same order
+    private static boolean sameFDs(FDStore a, FDStore b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int fd = 0; fd < a.size(); fd++) {
+            if (!a.leftSide(fd).equals(b.leftSide(fd)) || !a.rightSide(fd).equals(b.rightSide(fd))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,241 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * The KeyFinder class finds candidate keys,
+ * minimal sets of attributes whose closure is
+ * the whole relation, for a set of functional
+ * dependencies (FDs). It prunes the search with
+ * the usual rules:
+ * 1. An attribute that is on no RHS is in every key.
+ * 2. An attribute that is on some RHS but on no LHS
+ *    is in no key.
+ * Only the remaining core attributes, found on both
+ * sides, are searched, using closures that stop as
+ * soon as the whole relation is reached.
+ */
+
+public class KeyFinder {
+
+    // closure engine over the FDs
+    private final ClosureEngine closureEngine;
+    // the FDs
+    private final FDStore fds;
+    // every attribute of the relation
+    private final AttributeSet relation;
+    // attributes in every key
+    private final AttributeSet required;
+    // attributes that may or may not be in a key
+    private final AttributeSet core;
+    // attributes found on some RHS but on no LHS, in no key
+    private final AttributeSet rightOnly;
+
+    /**
+     * The Keys class holds the candidate keys found
+     * by enumerateKeys and says whether the search
+     * finished within its budget.
+     */
+    public static final class Keys {
+        // candidate keys in the order they were found
+        private final List<AttributeSet> keys;
+        // true if every candidate key was found
+        private final boolean complete;
+
+        Keys(List<AttributeSet> keys, boolean complete) {
+            this.keys = keys;
+            this.complete = complete;
+        }
+
+        /**
+         * @return candidate keys in the order they were found
+         */
+        public List<AttributeSet> getKeys() {
+            return keys;
+        }
+
+        /**
+         * @return true if every candidate key was found,
+         *         false if the budget ran out first
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+    /**
+     * Creates a key finder.
+     * The closure engine must be built over the same
+     * FDs and must not change while the finder is used.
+     *
+     * @param closureEngine closure engine over the FDs
+     * @param fds           the FDs
+     * @param relation      every attribute of the relation
+     */
+    public KeyFinder(ClosureEngine closureEngine, FDStore fds, AttributeSet relation) {
+        this.closureEngine = closureEngine;
+        this.fds = fds;
+        this.relation = relation;
+
+        AttributeSet onLeft = new AttributeSet();
+        AttributeSet onRight = new AttributeSet();
+        for (int i = 0; i < fds.size(); i++) {
+            for (int k = fds.lhsStart(i); k < fds.lhsEnd(i); k++) {
+                onLeft.add(fds.attribute(k));
+            }
+            for (int k = fds.rhsStart(i); k < fds.rhsEnd(i); k++) {
+                onRight.add(fds.attribute(k));
+            }
+        }
+        // rule 1: never determined, so always needed
+        required = new AttributeSet(relation);
+        required.removeAll(onRight);
+        // rule 2 leaves the attributes found on both sides
+        core = new AttributeSet(onLeft);
+        core.retainAll(onRight);
+        core.retainAll(relation);
+        rightOnly = new AttributeSet(onRight);
+        rightOnly.removeAll(onLeft);
+    }
+
+    /**
+     * @return the attributes that are in every candidate key
+     */
+    public AttributeSet getRequired() {
+        return new AttributeSet(required);
+    }
+
+    /**
+     * The findKey method returns one candidate key.
+     * It starts from the required attributes plus the
+     * core, which is always a superkey, and drops core
+     * attributes from the largest down as long as what
+     * is left is still a superkey.
+     *
+     * @return a candidate key
+     */
+    public AttributeSet findKey() {
+        AttributeSet start = new AttributeSet(required);
+        start.addAll(core);
+        return reduce(start);
+    }
+
+    /**
+     * The findKey method returns a candidate key
+     * contained in the given superkey. Core attributes
+     * are dropped from the largest down as long as what
+     * is left is still a superkey, so a superkey that
+     * is already minimal comes back unchanged.
+     *
+     * @param superKey a superkey of the relation
+     * @return a candidate key inside superKey
+     */
+    public AttributeSet findKey(AttributeSet superKey) {
+        return reduce(superKey);
+    }
+
+    /**
+     * The enumerateKeys method finds every candidate key
+     * with the algorithm of Lucchesi and Osborn: for each
+     * known key K and FD X->Y, the set X plus (K - Y) is a
+     * superkey, and if it contains no known key it is reduced
+     * to a new one. The reductions of one round run in
+     * parallel, and their results are added in a fixed order,
+     * so the keys always come out in the same order.
+     *
+     * @param maxKeys       stop after this many keys
+     * @param timeoutMillis stop after this many milliseconds, 0 for no limit
+     * @param parallel      run the reductions of each round in parallel
+     * @return the keys found and whether the search finished
+     */
+    public Keys enumerateKeys(int maxKeys, long timeoutMillis, boolean parallel) {
+        long deadline = timeoutMillis > 0 ? System.nanoTime() + timeoutMillis * 1_000_000L : Long.MAX_VALUE;
+        List<AttributeSet> keys = new ArrayList<AttributeSet>();
+        HashSet<AttributeSet> seen = new HashSet<AttributeSet>();
+        AttributeSet first = findKey();
+        keys.add(first);
+        seen.add(first);
+
+        // keys found in the last round, whose FD combinations are not tried yet
+        List<AttributeSet> frontier = new ArrayList<AttributeSet>(keys);
+        int fdCount = fds.size();
+        while (!frontier.isEmpty()) {
+            if (keys.size() >= maxKeys || System.nanoTime() > deadline) {
+                return new Keys(keys, false);
+            }
+            List<AttributeSet> known = new ArrayList<AttributeSet>(keys);
+            List<AttributeSet> round = frontier;
+            // pair p is FD p % fdCount on key p / fdCount, counted
+            // in a long since there can be more than 2^31 pairs
+            LongStream pairs = LongStream.range(0, (long) round.size() * fdCount);
+            if (parallel) {
+                pairs = pairs.parallel();
+            }
+            List<AttributeSet> found = new ArrayList<AttributeSet>();
+            pairs.mapToObj(p -> {
+                if (System.nanoTime() > deadline) {
+                    return null;
+                }
+                int fd = (int) (p % fdCount);
+                AttributeSet candidate = new AttributeSet(round.get((int) (p / fdCount)));
+                for (int k = fds.rhsStart(fd); k < fds.rhsEnd(fd); k++) {
+                    candidate.remove(fds.attribute(k));
+                }
+                for (int k = fds.lhsStart(fd); k < fds.lhsEnd(fd); k++) {
+                    candidate.add(fds.attribute(k));
+                }
+                for (AttributeSet key : known) {
+                    if (candidate.containsAll(key)) {
+                        return null;
+                    }
+                }
+                return reduce(candidate);
+            }).forEachOrdered(key -> {
+                if (key != null) {
+                    found.add(key);
+                }
+            });
+
+            frontier = new ArrayList<AttributeSet>();
+            for (AttributeSet key : found) {
+                if (seen.add(key)) {
+                    keys.add(key);
+                    frontier.add(key);
+                    if (keys.size() >= maxKeys) {
+                        return new Keys(keys, false);
+                    }
+                }
+            }
+        }
+        return new Keys(keys, System.nanoTime() <= deadline);
+    }
+
+    /**
+     * The isSuperKey method checks whether the
+     * closure of a set is the whole relation.
+     *
+     * @param attributes set of attributes
+     * @return true if the set is a superkey
+     */
+    public boolean isSuperKey(AttributeSet attributes) {
+        return closureEngine.implies(attributes, relation, -1);
+    }
+
+    // drop core attributes, largest first, while the set stays a superkey
+    private AttributeSet reduce(AttributeSet superKey) {
+        AttributeSet key = new AttributeSet(superKey);
+        // attributes on no LHS never help determine others
+        key.removeAll(rightOnly);
+        AttributeSet optional = new AttributeSet(key);
+        optional.removeAll(required);
+        int[] candidates = optional.toArray();
+        for (int k = candidates.length - 1; k >= 0; k--) {
+            key.remove(candidates[k]);
+            if (!isSuperKey(key)) {
+                key.add(candidates[k]);
+            }
+        }
+        return key;
+    }
+}
@@ -19,14 +19,18 @@
  *    it should be deleted from the decomposition.
  */
 
-import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.io.BufferedReader;
-import java.io.FileReader;
-import java.util.HashSet;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 
 /**
  * The ModifiedSynthesis class is
@@ -34,45 +38,119 @@ import java.util.regex.Pattern;
  * of Third Normal Form Relations
  * that have both the lossless join
  * and dependency presevation properties.
+ * It reads the functional dependencies from
+ * a text file and hands them to a SynthesisEngine.
+ * Attributes may be numbers or names, and the file
+ * may start with a header such as R(A,B,C) listing
+ * the attributes of the relation (see FDParser).
+ *
+ * Usage: java ModifiedSynthesis file.txt
+ *        java ModifiedSynthesis --batch directory-or-manifest
+ *        java ModifiedSynthesis --keys file.txt
+ *        java ModifiedSynthesis --stats file.txt
+ *        java ModifiedSynthesis --serve [socket]
+ *        java ModifiedSynthesis --verify file.txt
+ *        java ModifiedSynthesis --implies file.txt questions.txt
+ * A first argument --format=text|ndjson|binary chooses how
+ * the relations or keys of a single run are written
+ * (see RelationWriter); text is the default.
+ * The batch mode runs on -Dsynthesis.threads worker
+ * threads (all cores by default), see BatchSynthesis.
+ * The keys mode lists every candidate key, up to
+ * -Dsynthesis.maxKeys keys (1000 by default) and
+ * -Dsynthesis.keyTimeoutMillis milliseconds (no limit by default).
+ * The stats mode decomposes as usual and then writes
+ * a JSON report of the time spent in each phase and
+ * the closures computed to standard error, see SynthesisStats.
+ * The verify mode decomposes as usual and then checks that
+ * the join of the relations is lossless and that every FD is
+ * preserved, reports it on standard error and exits with
+ * status 1 if a check fails (see DecompositionVerifier).
+ * With -Dsynthesis.parallelBasis=true the redundancy and LHS
+ * tests of the minimal basis run in parallel as well, with
+ * the same result (see SynthesisEngine.setParallelBasis).
+ * With -Dsynthesis.cacheDir=directory single runs and the keys
+ * mode keep their results in that directory, up to
+ * -Dsynthesis.cacheMaxBytes bytes (64 MiB by default), and
+ * later runs over the same FDs in the same order read them from
+ * there (see ResultCache). The stats mode and equivalence
+ * compression always run the synthesis.
+ * The implies mode reads FDs from a second file and prints
+ * yes or no for each, as it follows from the FDs of the
+ * first file (see ImplicationIndex).
+ * The serve mode stays running and decomposes the files
+ * named on standard input, or sent to the given Unix domain
+ * socket, one per line (see SynthesisServer). It first warms
+ * up on -Dsynthesis.warmup generated decompositions (200 by
+ * default) and serves up to -Dsynthesis.threads connections
+ * to the socket at once.
+ * Independent groups of FDs are decomposed in parallel
+ * unless -Dsynthesis.components=false (see ComponentSynthesis).
+ * With -Dsynthesis.equivalence=true attributes that determine
+ * each other are collapsed into one before the synthesis and
+ * come back as a relation of their own (see EquivalenceClasses).
  */
 
 public class ModifiedSynthesis {
 
-    // an array containing left hand side
-    // and right hand side of a functional dependency (FD)
-    static String[] items;
-    // an array of string numbers found
-    // in left hand side of functional dependency (FD)
-    static String[] lhs;
-    // an array of string numbers found
-    // in right hand side of functional dependency (FD)
-    static String[] rhs;
+    // how printRelations writes the relations
+    private static RelationWriter.Format format = RelationWriter.Format.TEXT;
 
-    // ArrayList of sets of numbers for left hand side
-    // set contains unique attributes in left hand side
-    static ArrayList<HashSet<Integer>> leftSide;
-    // ArrayList of sets of numbers for right hand side
-    // set contains unique attributes in right hand side
-    static ArrayList<HashSet<Integer>> rightSide;
+    public static void main(String args[]) {
 
-    // Set that contains all unique attributes in our relation
-    static HashSet<Integer> num;
-    static int max;
+        // Pick the output format
+        if (args.length > 0 && args[0].startsWith("--format=")) {
+            try {
+                format = RelationWriter.formatOf(args[0].substring("--format=".length()));
+            } catch (IllegalArgumentException e) {
+                endProgram();
+            }
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
 
-    // Set that contains unique attributes in left hand side
-    static HashSet<Integer> numsFromLeftSide;
-    // Set that contains unique attributes in right hand side
-    static HashSet<Integer> numsFromRightSide;
+        // Decompose a whole directory or manifest of files
+        if (args.length == 2 && args[0].equals("--batch")) {
+            try {
+                BatchSynthesis.run(args[1],
+                        Integer.getInteger("synthesis.threads", Runtime.getRuntime().availableProcessors()),
+                        System.out, System.err);
+            } catch (IOException e) {
+                endProgram();
+            }
+            return;
+        }
 
-    // Regular expression intended for
-    // left hand side/right hand side of FD
-    static String REGEX = "[\\d,]+";
-    // Use Pattern and Matcher to find strings that match the specified regular
-    // expression
-    static Pattern pat;
-    static Matcher match;
+        // Keep running and decompose the files asked for
+        if ((args.length == 1 || args.length == 2) && args[0].equals("--serve")) {
+            serve(args.length == 2 ? args[1] : null);
+            return;
+        }
 
-    public static void main(String args[]) {
+        // List the candidate keys instead of decomposing
+        if (args.length == 2 && args[0].equals("--keys")) {
+            printKeys(args[1]);
+            return;
+        }
+
+        // Answer whether FDs follow instead of decomposing
+        if (args.length == 3 && args[0].equals("--implies")) {
+            printImplications(args[1], args[2]);
+            return;
+        }
+
+        // Measure the phases while decomposing
+        SynthesisStats stats = null;
+        if (args.length == 2 && args[0].equals("--stats")) {
+            stats = new SynthesisStats();
+            args = new String[] { args[1] };
+        }
+
+        // Check the decomposition after printing it
+        boolean verify = false;
+        if (args.length == 2 && args[0].equals("--verify")) {
+            verify = true;
+            args = new String[] { args[1] };
+        }
 
         // Check that we get exactly one argument to the command on terminal
         if (args.length < 1 || args.length > 1) {
@@ -81,479 +159,278 @@ public class ModifiedSynthesis {
         // Save textfile name
         String txtFile = args[0];
 
-        // Initialize predefined variables above main method
-        num = new HashSet<Integer>();
-        leftSide = new ArrayList<HashSet<Integer>>();
-        rightSide = new ArrayList<HashSet<Integer>>();
-
-        // Create a Pattern object for this specified REGEX
-        pat = Pattern.compile(REGEX);
-
+        List<AttributeSet> relations;
+        SynthesisEngine engine = null;
+        AttributeDictionary dictionary;
+        DecompositionVerifier verifier = null;
         try {
-            // Create a Buffered Reader for reading textfile
-            BufferedReader in = new BufferedReader(new FileReader(txtFile));
-
-            // Read in line by line in the textfile
-            for (String line = in.readLine(); line != null; line = in.readLine()) {
-                // Split each line by semicolon
-                // Capture left hand side and right hand side
-                items = line.trim().split(";");
-
-                // Check that we have exactly two strings in items array
-                if (items.length != 2) {
-                    endProgram();
-                }
-
-                // Initialize predefined variables for use
-                numsFromLeftSide = new HashSet<Integer>();
-                numsFromRightSide = new HashSet<Integer>();
-
-                // Create Matcher object in each iteration
-                for (String item : items) {
-                    // Match pattern with string in item
-                    match = pat.matcher(item);
-                    // if string do not conform to the format
-                    if (!match.matches()) {
-                        endProgram();
-                    }
-                }
-
-                // Split left hand side by comma if there is comma
-                lhs = items[0].split(",");
-                for (String num : lhs) {
-                    // Add number into LHS set
-                    numsFromLeftSide.add(Integer.valueOf(num));
-                }
-
-                // Split right hand side by comma if there is comma
-                rhs = items[1].split(",");
-                for (String num : rhs) {
-                    // Add number into RHS set
-                    numsFromRightSide.add(Integer.valueOf(num));
-                }
-
-                // Add LHS set to LHS array list
-                leftSide.add(numsFromLeftSide);
-                // Add RHS set to RHS array list
-                rightSide.add(numsFromRightSide);
+            // FDs in flat arrays, with the names of their attributes
+            FDStore fds = readFDs(txtFile);
+            dictionary = fds.getDictionary();
+            if (verify) {
+                // the engine rewrites its store, the verifier needs F as read
+                verifier = new DecompositionVerifier(fds.copy(), dictionary.relation());
             }
 
-            // Add each set from LHS to the num set
-            for (HashSet<Integer> s : leftSide) {
-                num.addAll(s);
+            // Take the relations from the result cache, if there is one;
+            // phases are only measured and classes collapsed by the engine
+            int cacheSize = Integer.getInteger("synthesis.closureCacheSize", SynthesisEngine.DEFAULT_CACHE_SIZE);
+            boolean equivalence = Boolean.getBoolean("synthesis.equivalence");
+            ResultCache resultCache = stats == null && !equivalence ? ResultCache.fromProperties() : null;
+            if (resultCache != null) {
+                relations = resultCache.decompose(fds, dictionary, cacheSize);
+            } else {
+                // Decompose the initial relation
+                engine = new SynthesisEngine(fds, dictionary.relation(), cacheSize);
+                engine.setListener(stats);
+                engine.setComponentSplitting(
+                        Boolean.parseBoolean(System.getProperty("synthesis.components", "true")));
+                engine.setEquivalenceCompression(equivalence);
+                engine.setParallelBasis(Boolean.getBoolean("synthesis.parallelBasis"));
+                relations = engine.decompose();
             }
-
-            // Add each set from RHS to the num set
-            for (HashSet<Integer> s : rightSide) {
-                num.addAll(s);
-            }
-
-        } catch (IOException e) {
-            System.out.println("ERROR!");
-        }
-
-        int max = num.size();
-        // finding out the size of the initial relation
-        for (Integer i : num) {
-            if (max < i) {
-                max = i;
-            }
-        }
-        // fix initial relation so numbers not in fds are included
-        for (int i = 1; i <= max; i++) {
-            num.add(i);
-        }
-
-        int numAttributes = num.size();
-        // successfully created inital relations
-
-        // Checking for the number of attributes
-        // System.out.println("Size of set: " + numAttributes);
-
-        // Create a set representing the initial relation
-        HashSet<Integer> initRelation = new HashSet<Integer>();
-        // Populate the initRelation set
-        for (int i = 1; i <= numAttributes; i++) {
-            initRelation.add(i);
+        } catch (FDFormatException e) {
+            // say where the file is in the wrong format
+            System.out.println("ERROR! " + e.getMessage());
+            System.exit(0);
+            return;
+        } catch (IOException | IllegalArgumentException e) {
+            endProgram();
+            return;
         }
 
-        // Create an array list that will store the decomposed relations
-        ArrayList<HashSet<Integer>> relations = new ArrayList<HashSet<Integer>>();
-        // Initially, this array list contains the starting relation
-        relations.add(initRelation);
-
-        // Decompose the initial relation
-        relations = makesRInto3NF();
-
         // Print out the decomposed relations
         // or if initial relation is already in 3NF, print it out
-        printRelations(relations);
-    }
-
-    /**
-     * The printRelations method displays
-     * the provided relations line by line.
-     * Each line (relation) is comprised of integers
-     * representing relation attributes.
-     * Integers are delimited by comma.
-     * 
-     * @param relations array list of sets of integers
-     */
-    private static void printRelations(ArrayList<HashSet<Integer>> relations) {
-        // Iterate through each relation
-        for (HashSet<Integer> s : relations) {
-            // Create an array to contain numbers
-            int[] nums = new int[s.size()];
-            // Save numbers in set into array
-            int i = 0;
-            for (Integer n : s) {
-                nums[i++] = n;
-            }
-            // Sort the number array
-            Arrays.sort(nums);
-            // Display numbers one by one, separated by comma
-            for (int pos = 0; pos < nums.length; pos++) {
-                System.out.print(nums[pos]);
-                // if we have not reached the last number yet
-                if (pos != nums.length - 1) {
-                    // print out comma after the number
-                    System.out.print(",");
-                }
-            }
-            // Print each relation on its own line
-            System.out.println();
-        }
-    }
-
-    /**
-     * The makesRInto3NF method adds
-     * attributes found from LHS and RHS
-     * to form a relation.
-     * It also saves the key that is found
-     * among the functional dependencies
-     * as a relation, if appropriate.
-     * 
-     * @return output the array list of set of attributes
-     */
-    private static ArrayList<HashSet<Integer>> makesRInto3NF() {
-
-        // find minimal basis that gives all attributes
-        // returns minimal size
-        FindMinBasis();
-
-        // Revoke method to partition the FDs
-        // and merge FDs in the same partition together
-        partitionMergeFDs();
-
-        // Create output array list that contains newly-formed relations
-        ArrayList<HashSet<Integer>> output = new ArrayList<HashSet<Integer>>();
-
-        // Create a copy of leftSide array list
-        ArrayList<HashSet<Integer>> copyLeftSide = new ArrayList<HashSet<Integer>>(leftSide);
-        // Create a copy of rightSide array list
-        ArrayList<HashSet<Integer>> copyRightSide = new ArrayList<HashSet<Integer>>(rightSide);
+        printRelations(relations, dictionary);
 
-        // for each set in the leftSide
-        for (int i = 0; i < copyLeftSide.size(); i++) {
-
-            // create a set to store attributes
-            HashSet<Integer> insert = new HashSet<Integer>();
-
-            // add attributes from LHS of the ith relation
-            insert.addAll(copyLeftSide.get(i));
-            // add attributes from RHS of the ith relation
-            insert.addAll(copyRightSide.get(i));
-
-            // add the newly-formed set into list
-            output.add(insert);
+        // Report how much recomputation the closure cache saved
+        if (engine != null && Boolean.getBoolean("synthesis.closureCacheStats")) {
+            System.err.println(engine.getClosureCache());
         }
 
-        // Check if LHS of any FD is a superkey
-        HashSet<Integer> checkForKey = hasSuperKey(output);
-        // if a key is found (we do not run into null value)
-        if (checkForKey != null) {
-            // add that set of attributes (key)
-            output.add(checkForKey);
+        // Report where the time went
+        if (stats != null) {
+            System.err.println(stats.toJson(engine.getClosureCache()));
         }
 
-        // for each set in the leftSide
-        for (int i = output.size() - 1; i >= 0; i--) {
-            // boolean flag to detect a relation is a subrelation
-            boolean subrel = false;
-
-            // for each set in output list
-            for (int j = 0; j < output.size(); j++) {
-                // if any of these sets contain the currently-formed set
-                if (i != j && output.get(j).containsAll(output.get(i))) {
-                    // set subrel flag to be true
-                    subrel = true;
-                    // end for loop
-                    break;
-                }
-            }
-
-            // if a subrelation is found
-            if (subrel) {
-                // if relation is not a subrelation
-                // add the newly-formed set into list
-                output.remove(i);
+        // Report whether the decomposition keeps its promises
+        if (verifier != null) {
+            long started = System.nanoTime();
+            DecompositionVerifier.Result result = verifier.verify(relations);
+            System.err.println("verify: " + result + " ("
+                    + relations.size() + " relations, " + (System.nanoTime() - started) / 1000 + " us)");
+            if (!result.isValid()) {
+                System.exit(1);
             }
-
         }
-
-        return output;
     }
 
     /**
-     * The endProgram method displays a message
-     * to the user in cases where
-     * the text file is not given on command line
-     * or the text file is in wrong format.
-     * The method ends the program in these scenarios.
+     * The readFDs method reads the text file
+     * of functional dependencies (FDs) with an FDParser.
+     * Each line holds one FD written as lhs;rhs, where
+     * both sides are attributes delimited by comma.
+     * The FDs come back as dense attribute ids, named
+     * by the dictionary of the store.
+     *
+     * @param txtFile name of the text file
+     * @return store holding the FDs
+     * @throws FDFormatException if a line is in the wrong format
+     * @throws IOException       if the file cannot be read
      */
-    public static void endProgram() {
-        System.out.println("ERROR!");
-        System.exit(0);
+    static FDStore readFDs(String txtFile) throws IOException {
+        return FDParser.parse(txtFile);
     }
 
-    /*
-     * The partitionMergeFDs checks if any singleton from
-     * left hand side of FD matches.
-     * If any matches are found, add the left hand side and
-     * right hand sides of each FD to
-     * the same partition.
+    /**
+     * The printKeys method prints every candidate
+     * key of the relation in the text file, one per line,
+     * in the same format as the relations.
+     * If the search ran out of budget a note
+     * is printed on standard error.
+     *
+     * @param txtFile name of the text file
      */
-    public static void partitionMergeFDs() {
-        // first FD
-        // start at index i
-        for (int i = 0; i < leftSide.size(); i++) {
-            // second FD
-            // start at the next index i + 1
-            int j = i + 1;
-            while (j < leftSide.size()) {
-                // if first FD share the same elements as second FD
-                if ((leftSide.get(i)).equals(leftSide.get(j))) {
-
-                    // add the right side of second FD to first FD
-                    rightSide.get(i).addAll(rightSide.get(j));
-
-                    // delete the merged FD
-                    leftSide.remove(j);
-                    rightSide.remove(j);
-                } else {
-                    j++;
-                }
+    private static void printKeys(String txtFile) {
+        KeyFinder.Keys keys;
+        AttributeDictionary dictionary;
+        try {
+            FDStore fds = readFDs(txtFile);
+            dictionary = fds.getDictionary();
+            int maxKeys = Integer.getInteger("synthesis.maxKeys", 1000);
+            long timeoutMillis = Long.getLong("synthesis.keyTimeoutMillis", 0L);
+            ResultCache resultCache = ResultCache.fromProperties();
+            if (resultCache != null) {
+                keys = resultCache.candidateKeys(fds, dictionary, SynthesisEngine.DEFAULT_CACHE_SIZE, maxKeys,
+                        timeoutMillis);
+            } else {
+                keys = new SynthesisEngine(fds, dictionary.relation(),
+                        SynthesisEngine.DEFAULT_CACHE_SIZE).candidateKeys(maxKeys, timeoutMillis);
             }
+        } catch (FDFormatException e) {
+            System.out.println("ERROR! " + e.getMessage());
+            return;
+        } catch (IOException | IllegalArgumentException e) {
+            endProgram();
+            return;
+        }
+        printRelations(keys.getKeys(), dictionary);
+        if (!keys.isComplete()) {
+            System.err.println("key search stopped after " + keys.getKeys().size() + " keys");
         }
-
     }
 
     /**
-     * The hasSuperKey method is created to find
-     * the super key using the given functional
-     * dependencies available in the text file.
-     * 
-     * @param output array list of sets of attributes
-     * @return set of attributes (superkey)
+     * The printImplications method reads a second
+     * file of FDs, the questions, and prints yes or no
+     * for each of them, one per line, as it follows or
+     * does not follow from the FDs of the first file.
+     * An attribute of a question that is not in the first
+     * file is determined only by itself.
+     *
+     * @param txtFile   name of the text file of FDs
+     * @param queryFile name of the text file of questions
      */
-    public static HashSet<Integer> hasSuperKey(ArrayList<HashSet<Integer>> output) {
-        // Check if the closure contains all the attributes in the relation
-        // The number of unique attributes is found from num.size()
-        // Check if closure.size() == num.size()
-        boolean hasSuperKey = false;
-        for (int i = 0; i < leftSide.size(); i++) {
-            if (FindClosure(output.get(i), i).size() == num.size()) { // flagged
-                hasSuperKey = true;
+    private static void printImplications(String txtFile, String queryFile) {
+        boolean[] answers;
+        try {
+            FDStore fds = readFDs(txtFile);
+            AttributeDictionary dictionary = fds.getDictionary();
+            FDStore queries = readFDs(queryFile);
+            AttributeDictionary names = queries.getDictionary();
+
+            // the ids of the first file for the attributes of the questions,
+            // new ids after them for attributes it does not have
+            int[] ids = new int[names.size()];
+            int fresh = dictionary.size();
+            for (int q = 0; q < ids.length; q++) {
+                int id = dictionary.id(names.name(q));
+                ids[q] = id >= 0 ? id : fresh++;
             }
-        }
-
-        // if no superkey, return a superkey
-        if (!hasSuperKey) {
-            int closest = 0;
-            int indexClosest = 0;
-            HashSet<Integer> key = new HashSet<Integer>();
-            // Add a relation whose schema is a key for R
-            for (int i = 0; i < leftSide.size(); i++) {
-                // Try to find a relation whose closure contains all the unique attributes
-                HashSet<Integer> candidateKey = FindClosure(leftSide.get(i));
-                // If closure calculated without FDs equals num.size(), all the number of
-                // attributes, add the set to something...
-
-                if (closest < candidateKey.size()) {
-                    key = leftSide.get(i);
-                    closest = candidateKey.size();
-                    indexClosest = i;
-                }
-
+            List<AttributeSet> lhs = new ArrayList<AttributeSet>();
+            List<AttributeSet> rhs = new ArrayList<AttributeSet>();
+            queries.toLists(lhs, rhs);
+            for (int q = 0; q < lhs.size(); q++) {
+                lhs.set(q, renumber(lhs.get(q), ids));
+                rhs.set(q, renumber(rhs.get(q), ids));
             }
-
-            HashSet<Integer> keyClosure = FindClosure(leftSide.get(indexClosest));
-            HashSet<Integer> numCopy = new HashSet<Integer>(num);
-            key.addAll(leftSide.get(indexClosest));
-            numCopy.removeAll(keyClosure);
-            key.addAll(numCopy);
-
-            // the correct key/candidate key
-            return key;
+            answers = new ImplicationIndex(fds, dictionary.relation()).implies(lhs, rhs);
+        } catch (FDFormatException e) {
+            System.out.println("ERROR! " + e.getMessage());
+            return;
+        } catch (IOException | IllegalArgumentException e) {
+            endProgram();
+            return;
         }
-        return null;
+        StringBuilder sb = new StringBuilder();
+        for (boolean answer : answers) {
+            sb.append(answer ? "yes" : "no").append(System.lineSeparator());
+        }
+        System.out.print(sb);
+        System.out.flush();
     }
 
-    /**
-     * The FindMinBasis method will
-     * look for a set of functional
-     * dependencies in which
-     * 1. All FD's have singleton right sides
-     * 2. If any FD is removed, the result is
-     * no longer a basis
-     * 3. If for any FD in basis we remove one
-     * or more attributes from LHS of F, the result
-     * is no longer a basis.
-     */
-    public static void FindMinBasis() {
-        // makes sure all fds ahave singleton right sides
-        applySplittingRule();
-
-        int loop = leftSide.size() - 1;
-        // check if all the fds are actually needed
-        for (int i = loop; i >= 0; i--) {
-
-            // find elements that can directly be found with that FD
-            HashSet<Integer> union = new HashSet<Integer>();
-            union.addAll(leftSide.get(i));
-            union.addAll(rightSide.get(i));
-            // calculate closure with FD
-            HashSet<Integer> withFD = FindClosure(union, i);
-            // calculate closure without that FD
-            HashSet<Integer> withoutFD = FindClosure(leftSide.get(i), i);
-            // if they are NOT the same, add that FD to minimal basis
-            if (withoutFD.equals(withFD)) {
-                leftSide.remove(i);
-                rightSide.remove(i);
-            }
+    // the set of the ids that each attribute maps to
+    private static AttributeSet renumber(AttributeSet set, int[] ids) {
+        AttributeSet renumbered = new AttributeSet();
+        for (int a = set.nextAttribute(0); a >= 0; a = set.nextAttribute(a + 1)) {
+            renumbered.add(ids[a]);
         }
-
-        // makes sure all elements on leftSide are needed
-        checksForUnnecessaryElements();
-
+        return renumbered;
     }
 
     /**
-     * The checksForUnnecessaryElements method
-     * verifies whether all the functional
-     * dependencies are needed.
+     * The printRelations method displays
+     * the provided relations line by line.
+     * Each line (relation) is comprised of integers
+     * representing relation attributes.
+     * Integers are delimited by comma.
+     * Other formats can be chosen with --format.
+     * 
+     * @param relations  array list of sets of integers
+     * @param dictionary names of the attributes
      */
-    private static void checksForUnnecessaryElements() {
-        for (int i = 0; i < leftSide.size(); i++) {
-            if (leftSide.get(i).size() > 1) {
-                for (Integer j : leftSide.get(i)) {
-                    HashSet<Integer> withE = FindClosure(leftSide.get(i));
-                    HashSet<Integer> difference = new HashSet<Integer>(leftSide.get(i));
-                    difference.remove(j);
-                    HashSet<Integer> withoutE = FindClosure(difference);
-                    if (withoutE.containsAll(withE)) {
-                        leftSide.set(i, difference);
-                    }
-                }
-            }
+    private static void printRelations(List<AttributeSet> relations, AttributeDictionary dictionary) {
+        // straight to the file descriptor in large chunks,
+        // past the locking and flushing of System.out
+        RelationWriter writer = new RelationWriter(new FileOutputStream(FileDescriptor.out).getChannel(), format);
+        try {
+            writer.write(relations, dictionary);
+            writer.flush();
+        } catch (IOException e) {
+            // nowhere left to report it
         }
     }
 
     /**
-     * The applySplittingRule method
-     * will take a functional dependency
-     * of this form: X -> AB, and break it
-     * into two FD's: X -> A and X -> B.
+     * The appendRelations method writes the
+     * relations in the format of printRelations
+     * to a string builder.
+     * 
+     * @param relations  list of sets of integers
+     * @param dictionary names of the attributes, or null
+     *                   to print the integers themselves
+     * @param sb         string builder to append to
      */
-    private static void applySplittingRule() {
-        // find the number of functional dependencies
-        int fdCount = leftSide.size();
-        // array list of attributes to be removed
-        ArrayList<Integer> indexToBeDeleted = new ArrayList<Integer>();
-        // for each functional dependency
-        for (int i = 0; i < fdCount; i++) {
-            // if RHS of FD has more than one attribute
-            if (rightSide.get(i).size() > 1) {
-                // for each attribute on RHS
-                for (Integer j : rightSide.get(i)) {
-                    // Add what is already on LHS
-                    leftSide.add(leftSide.get(i));
-                    // Add new RHS
-                    HashSet<Integer> toBeAdded = new HashSet<Integer>();
-                    toBeAdded.add(j);
-                    rightSide.add(new HashSet<>(toBeAdded));
+    static void appendRelations(List<AttributeSet> relations, AttributeDictionary dictionary,
+            StringBuilder sb) {
+        // Iterate through each relation
+        for (AttributeSet s : relations) {
+            if (dictionary != null) {
+                // Print the names of the attribute ids
+                dictionary.appendAttributes(s, sb);
+                sb.append(System.lineSeparator());
+                continue;
+            }
+            // Save numbers in set into an array,
+            // already sorted in ascending order
+            int[] nums = s.toArray();
+            // Display numbers one by one, separated by comma
+            for (int pos = 0; pos < nums.length; pos++) {
+                sb.append(nums[pos]);
+                // if we have not reached the last number yet
+                if (pos != nums.length - 1) {
+                    // print out comma after the number
+                    sb.append(',');
                 }
-                // Save index of the old FD
-                indexToBeDeleted.add(i);
             }
+            // Print each relation on its own line
+            sb.append(System.lineSeparator());
         }
-
-        // delete split fd from greatest index to least to avoid index errors
-        for (int i = indexToBeDeleted.size() - 1; i >= 0; i--) {
-
-            leftSide.remove((int) indexToBeDeleted.get(i));
-            rightSide.remove((int) indexToBeDeleted.get(i));
-        }
-
     }
 
     /**
-     * The FindClosure method will
-     * add the right side of FD if
-     * left side of FD is in the closure
-     * and right side is not.
-     * 
-     * @param leftAtt a set of left side attributes
-     * @return a set of attributes obtained in closure
+     * The serve method warms the engine up and answers
+     * requests on standard input or on a Unix domain socket
+     * until the input ends or the program is stopped.
+     *
+     * @param socket path of the socket, or null for standard input
      */
-    public static HashSet<Integer> FindClosure(HashSet<Integer> leftAtt) {
-        // closure = x (leftAtt), olcClosure = empty set
-        HashSet<Integer> closure = new HashSet<Integer>(leftAtt);
-        HashSet<Integer> oldClosure = new HashSet<Integer>();
-        // while x_old != x
-        while (closure.size() != oldClosure.size()) {
-            // set x_old to x
-            oldClosure = new HashSet<Integer>(closure);
-
-            // for each FD,
-            for (int i = 0; i < leftSide.size(); i++) {
-                // check whether the LHS attributes are in closure, but RHS attributes are not
-                if (closure.containsAll(leftSide.get(i))) {
-                    // Add RHS attributes into closure
-                    closure.addAll(rightSide.get(i));
-                }
+    private static void serve(String socket) {
+        SynthesisServer server = new SynthesisServer();
+        try {
+            server.warmUp(Integer.getInteger("synthesis.warmup", 200));
+            if (socket == null) {
+                server.serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+                        new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+            } else {
+                server.listen(Path.of(socket),
+                        Integer.getInteger("synthesis.threads", Runtime.getRuntime().availableProcessors()));
             }
+        } catch (IOException e) {
+            endProgram();
         }
-        return closure;
     }
 
     /**
-     * The second FindClosure method does the same
-     * operation as the first FindClosure method
-     * It is an overloaded method with two parameters.
-     * 
-     * @param leftAtt a set of left side attributes
-     * @param index   position of the FD in the array list
-     * @return a set of attributes in the closure
+     * The endProgram method displays a message
+     * to the user in cases where
+     * the text file is not given on command line
+     * or the text file is in wrong format.
+     * The method ends the program in these scenarios.
      */
-    public static HashSet<Integer> FindClosure(HashSet<Integer> leftAtt, Integer index) {
-        // closure = x (leftAtt), olcClosure = empty set
-        HashSet<Integer> closure = new HashSet<Integer>(leftAtt);
-        HashSet<Integer> oldClosure = new HashSet<Integer>();
-        // while x_old != x
-        while (closure.size() != oldClosure.size()) {
-            // set x_old to x
-            oldClosure = new HashSet<Integer>(closure);
-
-            // for each FD,
-            for (int i = 0; i < leftSide.size(); i++) {
-                // check whether the LHS attributes are in closure, but RHS attributes are not
-                if ((i != index) && closure.containsAll(leftSide.get(i))) {
-                    // Add RHS attributes into closure
-                    closure.addAll(rightSide.get(i));
-                }
-            }
-        }
-        return closure;
+    public static void endProgram() {
+        System.out.println("ERROR!");
+        System.exit(0);
     }
 }
@@ -0,0 +1,269 @@
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The RelationWriter class writes relations
+ * straight into a byte buffer that it reuses,
+ * and hands the buffer to a channel whenever it
+ * is full. Attribute numbers are turned into digits
+ * in place and names are encoded once per dictionary,
+ * so writing a relation allocates nothing.
+ *
+ * There are three formats:
+ * TEXT   - one relation per line, attributes delimited
+ *          by comma, as ModifiedSynthesis always printed
+ * NDJSON - one JSON array per line, numbers for numbered
+ *          attributes and strings for named ones
+ * BINARY - the bytes '3' 'N' 'F' 1, then the number of
+ *          attribute names and each name as its UTF-8 length
+ *          and bytes, then the number of relations and for
+ *          each its size and its attribute ids, ascending, each
+ *          written as the difference from the one before.
+ *          Ids index the names; with no names they are the
+ *          attribute numbers. Every count, length and id is
+ *          an unsigned LEB128 varint.
+ */
+
+public class RelationWriter implements Flushable {
+
+    /**
+     * The formats a RelationWriter can write.
+     */
+    public enum Format {
+        TEXT, NDJSON, BINARY
+    }
+
+    // first bytes of the binary format, the last one is the version
+    private static final byte[] MAGIC = { '3', 'N', 'F', 1 };
+    // end of a line in the text formats
+    private static final byte[] LINE = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    // where the bytes go
+    private final WritableByteChannel channel;
+    // how the relations are written
+    private final Format format;
+    // bytes not handed to the channel yet
+    private final ByteBuffer buffer;
+    // dictionary of names that names holds, or null
+    private AttributeDictionary encoded;
+    // UTF-8 bytes of the name of each id of a dictionary of names
+    private byte[][] names;
+    // numbers of one relation, for sorting
+    private int[] numbers = new int[16];
+    // digits of one number, last digit first
+    private final byte[] digits = new byte[11];
+
+    /**
+     * Creates a writer with a 64 KiB buffer.
+     *
+     * @param channel where the bytes go
+     * @param format  how the relations are written
+     */
+    public RelationWriter(WritableByteChannel channel, Format format) {
+        this(channel, format, 1 << 16);
+    }
+
+    /**
+     * Creates a writer.
+     *
+     * @param channel    where the bytes go
+     * @param format     how the relations are written
+     * @param bufferSize bytes gathered before each write to the channel
+     */
+    public RelationWriter(WritableByteChannel channel, Format format, int bufferSize) {
+        this.channel = channel;
+        this.format = format;
+        this.buffer = ByteBuffer.allocate(Math.max(16, bufferSize));
+    }
+
+    /**
+     * The formatOf method looks up a format by name.
+     *
+     * @param name text, ndjson or binary, in any case
+     * @return the format
+     * @throws IllegalArgumentException if there is no such format
+     */
+    public static Format formatOf(String name) {
+        return Format.valueOf(name.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * The write method writes a list of relations.
+     * Bytes may stay in the buffer until flush.
+     *
+     * @param relations  the relations
+     * @param dictionary names of the attributes, or null
+     *                   if the attributes are plain numbers
+     * @throws IOException if the channel cannot be written
+     */
+    public void write(List<AttributeSet> relations, AttributeDictionary dictionary) throws IOException {
+        if (format == Format.BINARY) {
+            writeBinary(relations, dictionary);
+            return;
+        }
+        boolean json = format == Format.NDJSON;
+        for (AttributeSet relation : relations) {
+            if (json) {
+                put((byte) '[');
+            }
+            writeAttributes(relation, dictionary, json);
+            if (json) {
+                put((byte) ']');
+            }
+            put(LINE);
+        }
+    }
+
+    /**
+     * Hands every byte in the buffer to the channel.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // write the attributes of one relation, delimited by comma
+    private void writeAttributes(AttributeSet relation, AttributeDictionary dictionary, boolean json)
+            throws IOException {
+        if (dictionary != null && !dictionary.isNumbered()) {
+            byte[][] utf8 = names(dictionary);
+            boolean first = true;
+            for (int a = relation.nextAttribute(0); a >= 0; a = relation.nextAttribute(a + 1)) {
+                if (!first) {
+                    put((byte) ',');
+                }
+                first = false;
+                if (json) {
+                    // names are letters, digits and _, nothing to escape
+                    put((byte) '"');
+                    put(utf8[a]);
+                    put((byte) '"');
+                } else {
+                    put(utf8[a]);
+                }
+            }
+            return;
+        }
+        // numbers, which ids of a dictionary may not keep in order
+        int count = 0;
+        for (int a = relation.nextAttribute(0); a >= 0; a = relation.nextAttribute(a + 1)) {
+            if (count == numbers.length) {
+                numbers = Arrays.copyOf(numbers, count * 2);
+            }
+            numbers[count++] = dictionary == null ? a : dictionary.number(a);
+        }
+        if (dictionary != null) {
+            Arrays.sort(numbers, 0, count);
+        }
+        for (int k = 0; k < count; k++) {
+            if (k > 0) {
+                put((byte) ',');
+            }
+            putInt(numbers[k]);
+        }
+    }
+
+    // write the binary format, see the class comment
+    private void writeBinary(List<AttributeSet> relations, AttributeDictionary dictionary) throws IOException {
+        put(MAGIC);
+        if (dictionary == null) {
+            putVarint(0);
+        } else {
+            putVarint(dictionary.size());
+            for (int id = 0; id < dictionary.size(); id++) {
+                byte[] name = dictionary.isNumbered() ? null : names(dictionary)[id];
+                if (name == null) {
+                    name = Integer.toString(dictionary.number(id)).getBytes(StandardCharsets.US_ASCII);
+                }
+                putVarint(name.length);
+                put(name);
+            }
+        }
+        putVarint(relations.size());
+        for (AttributeSet relation : relations) {
+            putVarint(relation.size());
+            int previous = 0;
+            for (int a = relation.nextAttribute(0); a >= 0; a = relation.nextAttribute(a + 1)) {
+                putVarint(a - previous);
+                previous = a;
+            }
+        }
+    }
+
+    // the UTF-8 bytes of every name of a dictionary of names, encoded once
+    private byte[][] names(AttributeDictionary dictionary) {
+        if (encoded != dictionary) {
+            names = new byte[dictionary.size()][];
+            for (int id = 0; id < names.length; id++) {
+                names[id] = dictionary.name(id).getBytes(StandardCharsets.UTF_8);
+            }
+            encoded = dictionary;
+        }
+        return names;
+    }
+
+    // write a number in decimal digits
+    private void putInt(int value) throws IOException {
+        long v = value;
+        if (v < 0) {
+            put((byte) '-');
+            v = -v;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v > 0);
+        ensure(count);
+        while (count > 0) {
+            buffer.put(digits[--count]);
+        }
+    }
+
+    // write an unsigned LEB128 varint
+    private void putVarint(int value) throws IOException {
+        ensure(5);
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void put(byte b) throws IOException {
+        ensure(1);
+        buffer.put(b);
+    }
+
+    // write bytes, in pieces if they do not fit in the buffer
+    private void put(byte[] bytes) throws IOException {
+        int from = 0;
+        while (from < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(buffer.remaining(), bytes.length - from);
+            buffer.put(bytes, from, length);
+            from += length;
+        }
+    }
+
+    // make room for a number of bytes
+    private void ensure(int count) throws IOException {
+        if (buffer.remaining() < count) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,495 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * The ResultCache class keeps the results of the
+ * synthesis in a directory, so a run over FDs that
+ * were decomposed before, by this or any earlier
+ * process, reads the result instead of computing it.
+ *
+ * An entry is found by the SHA-256 hash of the FDs
+ * exactly as the synthesis sees them: the number of
+ * attributes of R, and each FD in file order with its
+ * attribute ids in the order each side is walked in (see
+ * FDStore). The minimal basis depends on the order of
+ * the FDs, so files that list the same FDs in another
+ * order have entries of their own. A miss runs the usual
+ * synthesis on the FDs of the file, so a run gives the
+ * same result with the cache as without it.
+ *
+ * Each entry is a file named by the hash in hex, read
+ * through a memory map. It holds the bytes '3' 'N' 'F'
+ * 'C', a version, a byte of flags saying what the entry
+ * holds, two zero bytes, the 32 bytes of the hash and the
+ * length and CRC-32C of the rest. The rest is unsigned
+ * LEB128 varints, as in RelationWriter: the number of
+ * attributes, then with flag 1 the minimal basis and the
+ * relations and with flag 2 whether the key search finished
+ * and the candidate keys. An FD is its two sides and a set
+ * is its size and its attributes, ascending, each written
+ * as the difference from the one before.
+ * An entry that does not check out is deleted and
+ * computed again. Entries are written to a temporary
+ * file and moved into place, and when the directory
+ * holds more bytes than allowed the entries used
+ * longest ago are deleted.
+ */
+
+public class ResultCache {
+
+    // default bound on the bytes of all entries
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    // first bytes of an entry
+    private static final byte[] MAGIC = { '3', 'N', 'F', 'C' };
+    // version of the entry format
+    private static final byte VERSION = 2;
+    // bytes before the varints
+    private static final int HEADER = 48;
+    // name of every entry file ends with this
+    private static final String SUFFIX = ".3nfc";
+    // flag of an entry holding the minimal basis and the relations
+    private static final int RELATIONS = 1;
+    // flag of an entry holding the candidate keys
+    private static final int KEYS = 2;
+
+    // where the entries are
+    private final Path directory;
+    // bound on the bytes of all entries
+    private final long maxBytes;
+
+    /**
+     * Creates a cache in a directory, which is
+     * made if it does not exist.
+     *
+     * @param directory where the entries are
+     * @param maxBytes  bound on the bytes of all entries
+     * @throws IOException if the directory cannot be made
+     */
+    public ResultCache(Path directory, long maxBytes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The fromProperties method opens the cache in
+     * -Dsynthesis.cacheDir, holding up to
+     * -Dsynthesis.cacheMaxBytes bytes.
+     *
+     * @return the cache, or null if there is no cache
+     *         directory or it cannot be made
+     */
+    public static ResultCache fromProperties() {
+        String dir = System.getProperty("synthesis.cacheDir");
+        if (dir == null || dir.isEmpty()) {
+            return null;
+        }
+        try {
+            return new ResultCache(Paths.get(dir), Long.getLong("synthesis.cacheMaxBytes", DEFAULT_MAX_BYTES));
+        } catch (IOException e) {
+            // run without the cache
+            return null;
+        }
+    }
+
+    /**
+     * The decompose method returns the 3NF
+     * relations of the FDs of a file.
+     *
+     * @param fds        the FDs, which are not changed
+     * @param dictionary the names of their attributes
+     * @param cacheSize  number of closures a synthesis may cache
+     * @return list of relation schemas, in the ids of the file
+     */
+    public List<AttributeSet> decompose(FDStore fds, AttributeDictionary dictionary, int cacheSize) {
+        return decomposed(new Key(fds, dictionary), fds, cacheSize).relations;
+    }
+
+    /**
+     * The minimalBasis method returns the minimal
+     * basis of the FDs of a file, before FDs with
+     * the same LHS are merged.
+     *
+     * @param fds        the FDs, which are not changed
+     * @param dictionary the names of their attributes
+     * @param cacheSize  number of closures a synthesis may cache
+     * @return a new store with the minimal basis, in the ids of the file
+     */
+    public FDStore minimalBasis(FDStore fds, AttributeDictionary dictionary, int cacheSize) {
+        FDStore basis = decomposed(new Key(fds, dictionary), fds, cacheSize).basis.copy();
+        basis.setDictionary(dictionary);
+        return basis;
+    }
+
+    /**
+     * The candidateKeys method lists the candidate
+     * keys of the relation of a file. A search that
+     * ran out of budget is kept as it is.
+     *
+     * @param fds           the FDs, which are not changed
+     * @param dictionary    the names of their attributes
+     * @param cacheSize     number of closures a synthesis may cache
+     * @param maxKeys       stop after this many keys
+     * @param timeoutMillis stop after this many milliseconds, 0 for no limit
+     * @return the keys found, in the ids of the file, and
+     *         whether every key was found
+     */
+    public KeyFinder.Keys candidateKeys(FDStore fds, AttributeDictionary dictionary, int cacheSize, int maxKeys,
+            long timeoutMillis) {
+        Key key = new Key(fds, dictionary);
+        Entry entry = read(key);
+        if (entry == null || entry.keys == null) {
+            KeyFinder.Keys keys = new SynthesisEngine(fds.copy(), key.relation, cacheSize)
+                    .candidateKeys(maxKeys, timeoutMillis);
+            Entry updated = new Entry();
+            if (entry != null) {
+                updated.basis = entry.basis;
+                updated.relations = entry.relations;
+            }
+            updated.keys = keys.getKeys();
+            updated.keysComplete = keys.isComplete();
+            write(key, updated);
+            entry = updated;
+        }
+        return new KeyFinder.Keys(entry.keys, entry.keysComplete);
+    }
+
+    // the entry of the FDs with the relations in it, computed on a miss
+    private Entry decomposed(Key key, FDStore fds, int cacheSize) {
+        Entry entry = read(key);
+        if (entry != null && entry.relations != null) {
+            return entry;
+        }
+        // the usual synthesis over the FDs as the file has them
+        SynthesisEngine engine = new SynthesisEngine(fds.copy(), key.relation, cacheSize);
+        engine.keepBasis();
+        Entry updated = entry == null ? new Entry() : entry;
+        updated.relations = engine.decompose();
+        updated.basis = engine.getMinimalBasis();
+        write(key, updated);
+        return updated;
+    }
+
+    // read the entry of the FDs, or null if there is none
+    // or it does not check out
+    private Entry read(Key key) {
+        Path path = pathOf(key);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER || size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("entry of " + size + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            for (int k = 0; k < MAGIC.length; k++) {
+                if (buffer.get(k) != MAGIC[k]) {
+                    throw new IllegalStateException("not an entry");
+                }
+            }
+            if (buffer.get(4) != VERSION) {
+                throw new IllegalStateException("entry of another version");
+            }
+            int flags = buffer.get(5);
+            for (int k = 0; k < key.hash.length; k++) {
+                if (buffer.get(8 + k) != key.hash[k]) {
+                    throw new IllegalStateException("entry of other FDs");
+                }
+            }
+            int length = buffer.getInt(40);
+            if (length != size - HEADER) {
+                throw new IllegalStateException("entry cut short");
+            }
+            ByteBuffer payload = buffer.slice(HEADER, length);
+            CRC32C crc = new CRC32C();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(44)) {
+                throw new IllegalStateException("entry with a bad checksum");
+            }
+
+            Entry entry = new Entry();
+            int attributes = getVarint(payload);
+            if (attributes != key.names) {
+                throw new IllegalStateException("entry of other attributes");
+            }
+            if ((flags & RELATIONS) != 0) {
+                entry.basis = new FDStore();
+                for (int fd = getVarint(payload); fd > 0; fd--) {
+                    addFD(entry.basis, getSet(payload, attributes), getSet(payload, attributes));
+                }
+                entry.relations = getSets(payload, attributes);
+            }
+            if ((flags & KEYS) != 0) {
+                entry.keysComplete = payload.get() != 0;
+                entry.keys = getSets(payload, attributes);
+            }
+            if (payload.hasRemaining()) {
+                throw new IllegalStateException("entry with bytes left over");
+            }
+            // the entries used longest ago go first
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return entry;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // corrupt or unreadable, compute it again
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+                // another process may hold it, it is rewritten anyway
+            }
+            return null;
+        }
+    }
+
+    // write the entry of the FDs and keep the cache within its bound
+    private void write(Key key, Entry entry) {
+        Output out = new Output();
+        out.putVarint(key.names);
+        int flags = 0;
+        if (entry.relations != null) {
+            flags |= RELATIONS;
+            out.putVarint(entry.basis.size());
+            for (int fd = 0; fd < entry.basis.size(); fd++) {
+                out.putSet(entry.basis.leftSide(fd));
+                out.putSet(entry.basis.rightSide(fd));
+            }
+            out.putSets(entry.relations);
+        }
+        if (entry.keys != null) {
+            flags |= KEYS;
+            out.put(entry.keysComplete ? 1 : 0);
+            out.putSets(entry.keys);
+        }
+        ByteBuffer payload = ByteBuffer.wrap(out.bytes, 0, out.length);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.put(MAGIC).put(VERSION).put((byte) flags).put((byte) 0).put((byte) 0);
+        header.put(key.hash);
+        header.putInt(out.length).putInt((int) crc.getValue());
+        header.flip();
+
+        Path path = pathOf(key);
+        try {
+            Path temporary = Files.createTempFile(directory, "entry", ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                    while (header.hasRemaining() || payload.hasRemaining()) {
+                        channel.write(new ByteBuffer[] { header, payload });
+                    }
+                }
+                try {
+                    Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            evict();
+        } catch (IOException e) {
+            // the result is still good, it just is not kept
+        }
+    }
+
+    // delete the entries used longest ago until the rest fit the bound
+    private void evict() throws IOException {
+        List<Path> entries = new ArrayList<Path>();
+        List<long[]> stamps = new ArrayList<long[]>();
+        long total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    long size = Files.size(file);
+                    stamps.add(new long[] { Files.getLastModifiedTime(file).toMillis(), size, entries.size() });
+                    entries.add(file);
+                    total += size;
+                } catch (NoSuchFileException e) {
+                    // deleted by another process meanwhile
+                }
+            }
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        stamps.sort(Comparator.comparingLong(stamp -> stamp[0]));
+        for (int k = 0; k < stamps.size() && total > maxBytes; k++) {
+            Files.deleteIfExists(entries.get((int) stamps.get(k)[2]));
+            total -= stamps.get(k)[1];
+        }
+    }
+
+    // the file of the entry of the FDs
+    private Path pathOf(Key key) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : key.hash) {
+            sb.append(Character.forDigit((b >> 4) & 15, 16)).append(Character.forDigit(b & 15, 16));
+        }
+        return directory.resolve(sb.append(SUFFIX).toString());
+    }
+
+    // read a list of sets
+    private static List<AttributeSet> getSets(ByteBuffer in, int attributes) {
+        int count = getVarint(in);
+        List<AttributeSet> sets = new ArrayList<AttributeSet>(Math.min(count, in.remaining()));
+        for (int k = 0; k < count; k++) {
+            sets.add(getSet(in, attributes));
+        }
+        return sets;
+    }
+
+    // read a set, checking that its attributes are in R
+    private static AttributeSet getSet(ByteBuffer in, int attributes) {
+        AttributeSet set = new AttributeSet();
+        int a = 0;
+        for (int k = getVarint(in); k > 0; k--) {
+            a += getVarint(in);
+            if (a < 0 || a >= attributes) {
+                throw new IllegalStateException("attribute out of range");
+            }
+            set.add(a);
+        }
+        return set;
+    }
+
+    // read an unsigned LEB128 varint
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("varint too long");
+    }
+
+    // add an FD made of two sets to a store
+    private static void addFD(FDStore fds, AttributeSet lhs, AttributeSet rhs) {
+        for (int a = lhs.nextAttribute(0); a >= 0; a = lhs.nextAttribute(a + 1)) {
+            fds.add(a);
+        }
+        fds.closeSide();
+        for (int a = rhs.nextAttribute(0); a >= 0; a = rhs.nextAttribute(a + 1)) {
+            fds.add(a);
+        }
+        fds.closeSide();
+    }
+
+    /**
+     * The Entry class holds what an entry holds,
+     * in the ids of the file.
+     */
+    private static final class Entry {
+        // the minimal basis, or null
+        FDStore basis;
+        // the relations, or null
+        List<AttributeSet> relations;
+        // the candidate keys, or null
+        List<AttributeSet> keys;
+        // true if the key search finished
+        boolean keysComplete;
+    }
+
+    /**
+     * The Key class holds what finds the entry
+     * of the FDs of a file, see the class comment.
+     */
+    private static final class Key {
+        // number of attributes of R
+        final int names;
+        // every attribute id
+        final AttributeSet relation;
+        // SHA-256 of the FDs as the synthesis sees them
+        final byte[] hash;
+
+        Key(FDStore fds, AttributeDictionary dictionary) {
+            names = dictionary.size();
+            relation = dictionary.relation();
+            Output out = new Output();
+            out.putVarint(names);
+            out.putVarint(fds.size());
+            for (int fd = 0; fd < fds.size(); fd++) {
+                out.putSide(fds.leftSideInOrder(fd));
+                out.putSide(fds.rightSideInOrder(fd));
+            }
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update(out.bytes, 0, out.length);
+                hash = digest.digest();
+            } catch (NoSuchAlgorithmException e) {
+                // every Java platform has SHA-256
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * The Output class gathers varints in
+     * a byte array that grows as needed.
+     */
+    private static final class Output {
+        byte[] bytes = new byte[256];
+        int length;
+
+        void put(int b) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, length * 2);
+            }
+            bytes[length++] = (byte) b;
+        }
+
+        // write an unsigned LEB128 varint
+        void putVarint(int value) {
+            while ((value & ~0x7f) != 0) {
+                put((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            put(value);
+        }
+
+        // write a set as its size and its ascending attributes as differences
+        void putSet(AttributeSet set) {
+            putVarint(set.size());
+            int previous = 0;
+            for (int a = set.nextAttribute(0); a >= 0; a = set.nextAttribute(a + 1)) {
+                putVarint(a - previous);
+                previous = a;
+            }
+        }
+
+        void putSets(List<AttributeSet> sets) {
+            putVarint(sets.size());
+            for (AttributeSet set : sets) {
+                putSet(set);
+            }
+        }
+
+        // write a side as its size and its attributes in order
+        void putSide(int[] side) {
+            putVarint(side.length);
+            for (int a : side) {
+                putVarint(a);
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The SubsumptionIndex class carries out step 4
+ * of the synthesis: a relation whose attributes
+ * are a subset of another output relation is dropped.
+ * Of relations with the same attributes, the first
+ * one is kept.
+ *
+ * Relations are numbered by decreasing size, and for
+ * each attribute a bitset over those numbers records
+ * the relations containing it (an inverted index).
+ * The relations that could contain a relation R are
+ * those at least as big as R, a prefix of the
+ * numbering, intersected with the bitset of every
+ * attribute of R, rarest attribute first, stopping
+ * as soon as only R itself is left.
+ */
+
+public class SubsumptionIndex {
+
+    // relations in their original order
+    private final List<AttributeSet> relations;
+    // size of each relation
+    private final int[] size;
+    // relation at each position of the decreasing-size order
+    private final Integer[] order;
+    // position of each relation in that order
+    private final int[] position;
+    // for each size rank, one past the last position of a relation that big or bigger
+    private final int[] atLeast;
+    // for each attribute, the positions of relations containing it
+    private final AttributeSet[] postings;
+    // number of relations containing each attribute
+    private final int[] frequency;
+
+    /**
+     * Builds the index over a list of relations.
+     *
+     * @param relations relation schemas, not changed by the index
+     */
+    public SubsumptionIndex(List<AttributeSet> relations) {
+        this.relations = relations;
+        int n = relations.size();
+
+        // order relations by decreasing size, ties by original order
+        size = new int[n];
+        order = new Integer[n];
+        int universe = 0;
+        for (int i = 0; i < n; i++) {
+            size[i] = relations.get(i).size();
+            order[i] = i;
+            universe = Math.max(universe, relations.get(i).last() + 1);
+        }
+        Arrays.sort(order, (a, b) -> size[a] != size[b] ? size[b] - size[a] : a - b);
+        position = new int[n];
+        for (int p = 0; p < n; p++) {
+            position[order[p]] = p;
+        }
+
+        // end of the block of relations at least as big as the one at each position
+        atLeast = new int[n];
+        for (int p = n - 1; p >= 0; p--) {
+            boolean lastOfSize = p == n - 1 || size[order[p + 1]] != size[order[p]];
+            atLeast[p] = lastOfSize ? p + 1 : atLeast[p + 1];
+        }
+
+        // build the inverted index
+        postings = new AttributeSet[universe];
+        frequency = new int[universe];
+        for (int p = 0; p < n; p++) {
+            AttributeSet r = relations.get(order[p]);
+            for (int a = r.nextAttribute(0); a >= 0; a = r.nextAttribute(a + 1)) {
+                if (postings[a] == null) {
+                    postings[a] = new AttributeSet(n);
+                }
+                postings[a].add(p);
+                frequency[a]++;
+            }
+        }
+    }
+
+    /**
+     * The removeSubsumed method returns the relations
+     * that are not contained in another relation,
+     * keeping their original order.
+     *
+     * @param relations relation schemas
+     * @return the relations that are kept
+     */
+    public static ArrayList<AttributeSet> removeSubsumed(List<AttributeSet> relations) {
+        SubsumptionIndex index = new SubsumptionIndex(relations);
+        ArrayList<AttributeSet> kept = new ArrayList<AttributeSet>(relations.size());
+        for (int i = 0; i < relations.size(); i++) {
+            if (!index.isSubsumed(i)) {
+                kept.add(relations.get(i));
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * The isSubsumed method checks whether a relation
+     * is a strict subset of another relation, or equal
+     * to a relation that comes before it.
+     *
+     * @param i position of the relation in the original list
+     * @return true if the relation should be dropped
+     */
+    public boolean isSubsumed(int i) {
+        AttributeSet r = relations.get(i);
+        int self = position[i];
+
+        // only relations at least as big can contain this one
+        AttributeSet candidates = new AttributeSet(atLeast[self]);
+        candidates.addRange(0, atLeast[self]);
+
+        // intersect with the rarest attributes first
+        // (frequency, attribute) pairs packed in longs sort by frequency
+        long[] byRarity = new long[size[i]];
+        int k = 0;
+        for (int a = r.nextAttribute(0); a >= 0; a = r.nextAttribute(a + 1)) {
+            byRarity[k++] = ((long) frequency[a] << 32) | a;
+        }
+        Arrays.sort(byRarity);
+        for (long packed : byRarity) {
+            candidates.retainAll(postings[(int) packed]);
+            if (onlySelf(candidates, self)) {
+                return false;
+            }
+        }
+
+        // any candidate other than itself is a strict superset,
+        // or an equal relation; equal relations earlier in the
+        // original list come earlier in the order as well
+        for (int p = candidates.nextAttribute(0); p >= 0; p = candidates.nextAttribute(p + 1)) {
+            if (p != self && (size[order[p]] > size[i] || p < self)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // true if the candidates hold nothing but the relation itself
+    private static boolean onlySelf(AttributeSet candidates, int self) {
+        int first = candidates.nextAttribute(0);
+        return first < 0 || (first == self && candidates.nextAttribute(self + 1) < 0);
+    }
+}
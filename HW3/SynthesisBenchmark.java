@@ -0,0 +1,248 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SynthesisBenchmark class measures each phase
+ * of the synthesis on FDs from FDWorkloadGenerator.
+ * Like a JMH benchmark, every phase gets warm-up
+ * iterations that are thrown away and measured
+ * iterations that are reported. Only the phase itself
+ * is timed; the state it starts from is rebuilt before
+ * each operation outside the timed section.
+ * For each phase it reports operations per second,
+ * milliseconds per operation and bytes allocated
+ * per operation by the benchmark thread.
+ *
+ * Usage: java SynthesisBenchmark [--shape=random|chain|wide|cycle|dense]
+ *        [--attributes=N] [--fds=N] [--seed=N] [--warmup=N]
+ *        [--iterations=N] [--iterationMillis=N] [--phase=name,...]
+ * The phases are parse, split, minbasis, partition,
+ * keys, subsumption, print and decompose (end to end).
+ */
+
+public class SynthesisBenchmark {
+
+    // every phase, in the order they run in the synthesis
+    static final String[] PHASES = { "parse", "split", "minbasis", "partition", "keys", "subsumption", "print",
+            "decompose" };
+
+    // allocation counter of the benchmark thread, if the JVM has one
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    // keeps results alive so the JIT cannot drop the work
+    static volatile long sink;
+
+    // the FDs being decomposed
+    private final List<AttributeSet> leftSide = new ArrayList<AttributeSet>();
+    private final List<AttributeSet> rightSide = new ArrayList<AttributeSet>();
+    // the FDs written as text, for the parse phase
+    private final Path file;
+    // relations before subsumption, for the subsumption phase
+    private final List<AttributeSet> withKey;
+    // final relations, for the print phase
+    private final List<AttributeSet> relations;
+    // writer of the print phase, its bytes thrown away
+    private final RelationWriter writer = new RelationWriter(
+            Channels.newChannel(OutputStream.nullOutputStream()), RelationWriter.Format.TEXT);
+
+    // time and allocation of the timed sections of one iteration
+    private long timedNanos;
+    private long timedBytes;
+
+    SynthesisBenchmark(FDStore store) throws IOException {
+        store.toLists(leftSide, rightSide);
+        file = Files.createTempFile("fds", ".txt");
+        file.toFile().deleteOnExit();
+        Files.write(file, FDWorkloadGenerator.toText(store).getBytes(StandardCharsets.US_ASCII));
+
+        SynthesisEngine engine = newEngine();
+        engine.FindMinBasis();
+        engine.partitionMergeFDs();
+        withKey = engine.relationsFromFDs();
+        AttributeSet key = engine.hasSuperKey(new ArrayList<AttributeSet>(withKey));
+        if (key != null) {
+            withKey.add(key);
+        }
+        relations = SubsumptionIndex.removeSubsumed(withKey);
+    }
+
+    public static void main(String args[]) throws IOException {
+        FDWorkloadGenerator.Shape shape = FDWorkloadGenerator.Shape.RANDOM;
+        int attributes = 200;
+        int fds = 2000;
+        long seed = 1;
+        int warmup = 3;
+        int iterations = 5;
+        long iterationMillis = 1000;
+        String[] phases = PHASES;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--shape=")) {
+                shape = FDWorkloadGenerator.Shape.valueOf(value.toUpperCase());
+            } else if (arg.startsWith("--attributes=")) {
+                attributes = Integer.parseInt(value);
+            } else if (arg.startsWith("--fds=")) {
+                fds = Integer.parseInt(value);
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(value);
+            } else if (arg.startsWith("--warmup=")) {
+                warmup = Integer.parseInt(value);
+            } else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(value);
+            } else if (arg.startsWith("--iterationMillis=")) {
+                iterationMillis = Long.parseLong(value);
+            } else if (arg.startsWith("--phase=")) {
+                phases = value.split(",");
+            } else {
+                System.out.println("unknown option " + arg);
+                return;
+            }
+        }
+
+        SynthesisBenchmark benchmark = new SynthesisBenchmark(
+                FDWorkloadGenerator.generate(shape, attributes, fds, seed));
+        System.out.printf("# shape=%s attributes=%d fds=%d seed=%d warmup=%d iterations=%d x %d ms%n",
+                shape.name().toLowerCase(), attributes, fds, seed, warmup, iterations, iterationMillis);
+        System.out.printf("%-12s %14s %12s %16s%n", "phase", "ops/s", "ms/op", "bytes/op");
+        for (String phase : phases) {
+            benchmark.measure(phase, warmup, iterations, iterationMillis);
+        }
+    }
+
+    /**
+     * The measure method runs one phase for the
+     * warm-up and measured iterations and prints
+     * the averages of the measured ones.
+     *
+     * @param phase           name of the phase
+     * @param warmup          iterations to throw away
+     * @param iterations      iterations to report
+     * @param iterationMillis length of one iteration
+     */
+    void measure(String phase, int warmup, int iterations, long iterationMillis) throws IOException {
+        long ops = 0;
+        long nanos = 0;
+        long bytes = 0;
+        for (int it = 0; it < warmup + iterations; it++) {
+            timedNanos = 0;
+            timedBytes = 0;
+            long count = 0;
+            long end = System.nanoTime() + iterationMillis * 1_000_000L;
+            do {
+                runOnce(phase);
+                count++;
+            } while (System.nanoTime() < end);
+            if (it >= warmup) {
+                ops += count;
+                nanos += timedNanos;
+                bytes += timedBytes;
+            }
+        }
+        double msPerOp = nanos / 1e6 / ops;
+        System.out.printf("%-12s %14.1f %12.4f %16s%n", phase, 1000 / msPerOp, msPerOp,
+                THREADS != null ? String.valueOf(bytes / ops) : "n/a");
+    }
+
+    // prepare the state for one operation of a phase, then time the phase
+    private void runOnce(String phase) throws IOException {
+        SynthesisEngine engine;
+        switch (phase) {
+            case "parse":
+                start();
+                FDStore store = FDParser.parse(file);
+                stop(store.size());
+                break;
+            case "split":
+                engine = newEngine();
+                start();
+                engine.applySplittingRule();
+                stop(0);
+                break;
+            case "minbasis":
+                engine = newEngine();
+                start();
+                engine.FindMinBasis();
+                stop(0);
+                break;
+            case "partition":
+                engine = newEngine();
+                engine.FindMinBasis();
+                start();
+                engine.partitionMergeFDs();
+                stop(0);
+                break;
+            case "keys":
+                engine = newEngine();
+                engine.FindMinBasis();
+                engine.partitionMergeFDs();
+                ArrayList<AttributeSet> output = engine.relationsFromFDs();
+                start();
+                AttributeSet key = engine.hasSuperKey(output);
+                stop(key == null ? 0 : key.size());
+                break;
+            case "subsumption":
+                start();
+                List<AttributeSet> kept = SubsumptionIndex.removeSubsumed(withKey);
+                stop(kept.size());
+                break;
+            case "print":
+                start();
+                writer.write(relations, null);
+                writer.flush();
+                stop(relations.size());
+                break;
+            case "decompose":
+                start();
+                List<AttributeSet> result = newEngine().decompose();
+                stop(result.size());
+                break;
+            default:
+                throw new IllegalArgumentException("unknown phase " + phase);
+        }
+    }
+
+    // engine over a fresh copy of the FDs
+    private SynthesisEngine newEngine() {
+        return new SynthesisEngine(leftSide, rightSide);
+    }
+
+    // time and allocation when the current timed section started
+    private long startNanos;
+    private long startBytes;
+
+    private void start() {
+        startBytes = allocatedBytes();
+        startNanos = System.nanoTime();
+    }
+
+    private void stop(long result) {
+        timedNanos += System.nanoTime() - startNanos;
+        timedBytes += allocatedBytes() - startBytes;
+        sink += result;
+    }
+
+    // bytes allocated so far by this thread, or 0 if unknown
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    // the HotSpot thread bean, which can count allocated bytes
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory
+                    .getThreadMXBean();
+            if (bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+                return bean;
+            }
+        }
+        return null;
+    }
+}
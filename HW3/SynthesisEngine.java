@@ -0,0 +1,829 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The SynthesisEngine class carries out
+ * Algorithm 3.26 (see ModifiedSynthesis) for one
+ * set of functional dependencies (FDs).
+ * All state lives in the instance, so separate
+ * engines can decompose different schemas at the
+ * same time on different threads. A single engine
+ * is not meant to be shared between threads.
+ * The FDs live in an FDStore, and every phase
+ * works on the store directly.
+ * FDs that fall into two or more connected components
+ * are decomposed one component at a time, in parallel
+ * (see ComponentSynthesis), unless that is turned off
+ * with setComponentSplitting.
+ * Attributes that determine each other through FDs
+ * with a single LHS attribute can be collapsed into one
+ * before the synthesis (see setEquivalenceCompression).
+ */
+
+public class SynthesisEngine {
+
+    // default number of closures kept in the closure cache
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+    // FDs tested for redundancy at once in parallel mode
+    private static final int PARALLEL_BLOCK = 1024;
+
+    // the FDs, LHS and RHS of each in flat arrays
+    private final FDStore fds;
+
+    // Set that contains all unique attributes in our relation
+    private final AttributeSet num;
+
+    // Closure engine over the FDs,
+    // built on first use and dropped whenever FDs move
+    private ClosureEngine closureEngine;
+    // Closures already computed for the current FDs
+    private final ClosureCache closureCache;
+    // number of closures each cache may hold
+    private final int cacheSize;
+    // true to decompose connected components on their own
+    private boolean componentSplitting = true;
+    // true to collapse classes of equivalent attributes first
+    private boolean equivalenceCompression;
+    // true to run the tests of the minimal basis in parallel
+    private boolean parallelBasis;
+    // true once every FD has a single RHS attribute
+    private boolean split;
+    // the minimal basis, once found, if it is kept
+    private FDStore basis;
+    // true to keep a copy of the minimal basis
+    private boolean keepBasis;
+
+    // the decomposition, once it has been computed
+    private List<AttributeSet> relations;
+    // told about phases and closures, or null
+    private SynthesisListener listener;
+
+    /**
+     * Creates an engine for the given FDs
+     * with a closure cache of the default size.
+     *
+     * @param leftSide  LHS of each FD
+     * @param rightSide RHS of each FD, in the same order
+     */
+    public SynthesisEngine(List<AttributeSet> leftSide, List<AttributeSet> rightSide) {
+        this(leftSide, rightSide, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates an engine for the given FDs.
+     * The sets are copied, so the caller keeps
+     * ownership of the lists passed in.
+     * The relation holds every attribute from 1
+     * up to the largest attribute found in the FDs.
+     *
+     * @param leftSide  LHS of each FD
+     * @param rightSide RHS of each FD, in the same order
+     * @param cacheSize number of closures to cache, 0 turns caching off
+     * @throws IllegalArgumentException if there are no FDs, the lists
+     *                                  differ in length or a side is empty
+     */
+    public SynthesisEngine(List<AttributeSet> leftSide, List<AttributeSet> rightSide, int cacheSize) {
+        this(leftSide, rightSide, null, cacheSize);
+    }
+
+    /**
+     * Creates an engine for the given FDs over
+     * the given relation, such as the relation of an
+     * AttributeDictionary. The sets are copied.
+     *
+     * @param leftSide  LHS of each FD
+     * @param rightSide RHS of each FD, in the same order
+     * @param relation  every attribute of the relation, or null
+     *                  for every attribute from 1 up to the largest
+     *                  attribute found in the FDs
+     * @param cacheSize number of closures to cache, 0 turns caching off
+     * @throws IllegalArgumentException if there are no FDs, the lists
+     *                                  differ in length, a side is empty
+     *                                  or an FD is not inside the relation
+     */
+    public SynthesisEngine(List<AttributeSet> leftSide, List<AttributeSet> rightSide, AttributeSet relation,
+            int cacheSize) {
+        this(storeOf(leftSide, rightSide), relation, cacheSize);
+    }
+
+    /**
+     * Creates an engine for the FDs of a store, such
+     * as one read by FDParser. The engine takes the store
+     * over and changes it as the synthesis goes on.
+     *
+     * @param fds       the FDs
+     * @param relation  every attribute of the relation, or null
+     *                  for every attribute from 1 up to the largest
+     *                  attribute found in the FDs
+     * @param cacheSize number of closures to cache, 0 turns caching off
+     * @throws IllegalArgumentException if there are no FDs, a side
+     *                                  is empty or an FD is not
+     *                                  inside the relation
+     */
+    public SynthesisEngine(FDStore fds, AttributeSet relation, int cacheSize) {
+        if (fds.size() == 0) {
+            throw new IllegalArgumentException("no functional dependencies");
+        }
+        this.fds = fds;
+        this.num = new AttributeSet();
+        for (int i = 0; i < fds.size(); i++) {
+            if (fds.lhsSize(i) == 0 || fds.rhsSize(i) == 0) {
+                throw new IllegalArgumentException("FD " + (i + 1) + " has an empty side");
+            }
+            // Add each attribute from LHS and RHS to the num set
+            fds.addAttributes(i, num);
+        }
+
+        if (relation != null) {
+            if (!relation.containsAll(num)) {
+                throw new IllegalArgumentException("FDs use attributes outside the relation");
+            }
+            num.addAll(relation);
+        } else {
+            // finding out the size of the initial relation
+            int max = Math.max(num.size(), num.last());
+            // fix initial relation so numbers not in fds are included
+            for (int i = 1; i <= max; i++) {
+                num.add(i);
+            }
+        }
+
+        this.closureCache = new ClosureCache(cacheSize);
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * The storeOf method copies a pair of
+     * parallel lists of FDs into a new store.
+     *
+     * @param leftSide  LHS of each FD
+     * @param rightSide RHS of each FD, in the same order
+     * @return the store
+     * @throws IllegalArgumentException if the lists differ in length
+     */
+    private static FDStore storeOf(List<AttributeSet> leftSide, List<AttributeSet> rightSide) {
+        if (leftSide.size() != rightSide.size()) {
+            throw new IllegalArgumentException("LHS and RHS lists differ in length");
+        }
+        return FDStore.of(leftSide, rightSide);
+    }
+
+    /**
+     * The decompose method runs the synthesis
+     * and returns the 3NF relations.
+     * The work is done on the first call only.
+     *
+     * @return list of relation schemas
+     */
+    public List<AttributeSet> decompose() {
+        if (relations == null) {
+            relations = makesRInto3NF();
+        }
+        return relations;
+    }
+
+    /**
+     * The setListener method sets the listener
+     * told about each phase and closure.
+     * With no listener nothing is measured.
+     *
+     * @param listener the listener, or null for none
+     */
+    public void setListener(SynthesisListener listener) {
+        this.listener = listener;
+        if (closureEngine != null) {
+            closureEngine.setListener(listener);
+        }
+    }
+
+    /**
+     * The setComponentSplitting method chooses whether
+     * decompose runs each connected component of the FDs
+     * on its own, in parallel. It is on by default, and
+     * the relations are the same either way.
+     *
+     * @param componentSplitting true to split into components
+     */
+    public void setComponentSplitting(boolean componentSplitting) {
+        this.componentSplitting = componentSplitting;
+    }
+
+    /**
+     * The setEquivalenceCompression method chooses whether
+     * decompose first collapses each class of attributes
+     * that determine each other, such as 2 and 3 with
+     * 2->3 and 3->2, into its smallest attribute (see
+     * EquivalenceClasses). The synthesis then runs on fewer
+     * attributes and FDs, and each class of two or more
+     * attributes becomes a relation of its own, in which
+     * every attribute is a key. The other relations hold
+     * the smallest attribute of a class in place of the
+     * whole class, so the decomposition can differ from
+     * the one found without compression. It is off by default.
+     *
+     * @param equivalenceCompression true to collapse equivalent attributes
+     */
+    public void setEquivalenceCompression(boolean equivalenceCompression) {
+        this.equivalenceCompression = equivalenceCompression;
+    }
+
+    /**
+     * The setParallelBasis method chooses whether
+     * FindMinBasis runs its tests on the common
+     * fork-join pool. The FDs are tested for redundancy
+     * in blocks, all FDs of a block at once against the
+     * FDs as they were before the block, and the results
+     * are taken in the order of the sequential loop. An FD
+     * the snapshot does not imply is not implied by fewer
+     * FDs either, and an FD implied even without the FDs
+     * above it in the block is implied by more. Only a
+     * redundant FD in between whose closure may have used
+     * an FD removed since is tested again. The LHS
+     * attributes of different FDs are tested at the same
+     * time, since dropping an extraneous attribute does not
+     * change any closure. The minimal basis is the same as
+     * without it. It is off by default.
+     *
+     * @param parallelBasis true to test in parallel
+     */
+    public void setParallelBasis(boolean parallelBasis) {
+        this.parallelBasis = parallelBasis;
+    }
+
+    /**
+     * The keepBasis method makes FindMinBasis keep
+     * a copy of the minimal basis, before FDs with the
+     * same LHS are merged. The FDs are then decomposed
+     * as one component, which gives the same result.
+     */
+    void keepBasis() {
+        keepBasis = true;
+        componentSplitting = false;
+    }
+
+    /**
+     * @return the minimal basis FindMinBasis kept, or null
+     */
+    FDStore getMinimalBasis() {
+        return basis;
+    }
+
+    /**
+     * @return every attribute of the relation being decomposed
+     */
+    public AttributeSet getAttributes() {
+        return new AttributeSet(num);
+    }
+
+    /**
+     * @return the closure cache, for its hit and miss counts
+     */
+    public ClosureCache getClosureCache() {
+        return closureCache;
+    }
+
+    /**
+     * The makesRInto3NF method adds
+     * attributes found from LHS and RHS
+     * to form a relation.
+     * It also saves the key that is found
+     * among the functional dependencies
+     * as a relation, if appropriate.
+     * 
+     * @return output the array list of set of attributes
+     */
+    private ArrayList<AttributeSet> makesRInto3NF() {
+        if (!equivalenceCompression) {
+            return synthesize();
+        }
+
+        // stand one attribute in for each class of equivalent attributes
+        long started = phaseStarted("equivalence");
+        List<AttributeSet> classes = collapseEquivalentAttributes();
+        phaseFinished("equivalence", started);
+
+        ArrayList<AttributeSet> output = synthesize();
+        if (!classes.isEmpty()) {
+            // each class becomes a relation, and the
+            // collapsed attributes join the relation again
+            for (AttributeSet equivalent : classes) {
+                num.addAll(equivalent);
+                output.add(equivalent);
+            }
+            // a key made of one representative is inside its class
+            output = SubsumptionIndex.removeSubsumed(output);
+        }
+        return output;
+    }
+
+    /**
+     * The collapseEquivalentAttributes method replaces
+     * every attribute in the FDs with the smallest attribute
+     * of its class and leaves the others out of the relation.
+     *
+     * @return each class of two or more attributes,
+     *         in ascending order of their smallest attribute
+     */
+    private List<AttributeSet> collapseEquivalentAttributes() {
+        List<AttributeSet> classes = new ArrayList<AttributeSet>();
+        int[] representative = EquivalenceClasses.representatives(fds, num.last() + 1);
+        if (representative == null) {
+            return classes;
+        }
+        // gather the classes under their representative
+        AttributeSet[] members = new AttributeSet[representative.length];
+        for (int a = 0; a < representative.length; a++) {
+            int r = representative[a];
+            if (r != a) {
+                if (members[r] == null) {
+                    members[r] = AttributeSet.of(r);
+                }
+                members[r].add(a);
+                num.remove(a);
+            }
+        }
+        for (AttributeSet equivalent : members) {
+            if (equivalent != null) {
+                classes.add(equivalent);
+            }
+        }
+        fds.collapse(a -> representative[a]);
+        invalidateClosures();
+        return classes;
+    }
+
+    /**
+     * The synthesize method runs the steps of
+     * Algorithm 3.26 on the FDs as they are.
+     *
+     * @return output the array list of set of attributes
+     */
+    private ArrayList<AttributeSet> synthesize() {
+        if (componentSplitting) {
+            // the components are found on the split FDs
+            long started = phaseStarted("split");
+            applySplittingRule();
+            phaseFinished("split", started);
+            ArrayList<AttributeSet> output = ComponentSynthesis.decompose(fds, num, cacheSize, listener,
+                    parallelBasis);
+            if (output != null) {
+                return output;
+            }
+            // a single component, go on as usual
+        }
+
+        // find minimal basis that gives all attributes
+        // returns minimal size
+        FindMinBasis();
+
+        // Create output array list that contains newly-formed relations
+        ArrayList<AttributeSet> output = relationsFromPartitions();
+
+        // Check if LHS of any FD is a superkey
+        long started = phaseStarted("key");
+        AttributeSet checkForKey = hasSuperKey(output);
+        phaseFinished("key", started);
+        // if a key is found (we do not run into null value)
+        if (checkForKey != null) {
+            // add that set of attributes (key)
+            output.add(checkForKey);
+        }
+
+        // drop every relation that is contained in another one,
+        // keeping one copy of relations that appear more than once
+        started = phaseStarted("subsumption");
+        output = SubsumptionIndex.removeSubsumed(output);
+        phaseFinished("subsumption", started);
+
+        return output;
+    }
+
+    /**
+     * The relationsFromPartitions method merges the
+     * FDs of the minimal basis that have the same LHS
+     * and forms one relation for each of them.
+     *
+     * @return list of the newly-formed relations
+     */
+    ArrayList<AttributeSet> relationsFromPartitions() {
+        // Revoke method to partition the FDs
+        // and merge FDs in the same partition together
+        long started = phaseStarted("partition");
+        partitionMergeFDs();
+        phaseFinished("partition", started);
+
+        return relationsFromFDs();
+    }
+
+    /**
+     * The relationsFromFDs method forms one
+     * relation XY for each FD X->Y.
+     *
+     * @return list of the newly-formed relations
+     */
+    ArrayList<AttributeSet> relationsFromFDs() {
+        ArrayList<AttributeSet> output = new ArrayList<AttributeSet>(fds.size());
+
+        // for each FD
+        for (int i = 0; i < fds.size(); i++) {
+
+            // create a set to store attributes
+            AttributeSet insert = new AttributeSet();
+
+            // add attributes from LHS and RHS of the ith relation
+            fds.addAttributes(i, insert);
+
+            // add the newly-formed set into list
+            output.add(insert);
+        }
+        return output;
+    }
+
+    /*
+     * The partitionMergeFDs groups the FDs
+     * by their left hand side.
+     * All FDs with the same left hand side are
+     * merged into the first of them, whose right hand
+     * side becomes the union of their right hand sides.
+     * The groups keep the order in which their
+     * left hand side first appears.
+     */
+    public void partitionMergeFDs() {
+        // nothing moves if every left hand side was distinct
+        if (fds.mergeByLeftSide()) {
+            invalidateClosures();
+        }
+    }
+
+    /**
+     * The hasSuperKey method checks whether
+     * one of the relations is a superkey,
+     * and if none is, finds a key for R.
+     * The superkey built from the LHS with the largest
+     * closure is made minimal with a KeyFinder.
+     * 
+     * @param output array list of sets of attributes
+     * @return set of attributes (key), or null if
+     *         a relation is already a superkey
+     */
+    public AttributeSet hasSuperKey(ArrayList<AttributeSet> output) {
+        // Check if the closure contains all the attributes in the relation
+        // The number of unique attributes is found from num.size()
+        // Check if closure.size() == num.size()
+        for (int i = 0; i < fds.size(); i++) {
+            if (FindClosure(output.get(i), i).size() == num.size()) {
+                return null;
+            }
+        }
+
+        // if every FD was trivial, the whole relation is the key
+        if (fds.size() == 0) {
+            return new AttributeSet(num);
+        }
+
+        // no superkey, so start from the LHS with the largest
+        // closure plus every attribute missing from that closure
+        int closest = 0;
+        int indexClosest = 0;
+        for (int i = 0; i < fds.size(); i++) {
+            int closureSize = FindClosure(fds.leftSide(i)).size();
+            if (closest < closureSize) {
+                closest = closureSize;
+                indexClosest = i;
+            }
+        }
+        AttributeSet superKey = new AttributeSet(num);
+        superKey.removeAll(FindClosure(fds.leftSide(indexClosest)));
+        superKey.addAll(fds.leftSide(indexClosest));
+
+        // and shrink that superkey to a candidate key
+        return newKeyFinder().findKey(superKey);
+    }
+
+    /**
+     * The candidateKeys method lists the candidate
+     * keys of R for the current FDs.
+     *
+     * @param maxKeys       stop after this many keys
+     * @param timeoutMillis stop after this many milliseconds, 0 for no limit
+     * @return the keys found and whether every key was found
+     */
+    public KeyFinder.Keys candidateKeys(int maxKeys, long timeoutMillis) {
+        return newKeyFinder().enumerateKeys(maxKeys, timeoutMillis, true);
+    }
+
+    /**
+     * The findKey method shrinks a superkey
+     * of R to a candidate key for the current FDs.
+     *
+     * @param superKey a superkey of R
+     * @return the key
+     */
+    AttributeSet findKey(AttributeSet superKey) {
+        return newKeyFinder().findKey(superKey);
+    }
+
+    /**
+     * The newKeyFinder method creates a key finder
+     * for the current FDs.
+     *
+     * @return the key finder
+     */
+    private KeyFinder newKeyFinder() {
+        return new KeyFinder(getClosureEngine(), fds, num);
+    }
+
+    /**
+     * The FindMinBasis method will
+     * look for a set of functional
+     * dependencies in which
+     * 1. All FD's have singleton right sides
+     * 2. If any FD is removed, the result is
+     * no longer a basis
+     * 3. If for any FD in basis we remove one
+     * or more attributes from LHS of F, the result
+     * is no longer a basis.
+     */
+    public void FindMinBasis() {
+        // makes sure all fds ahave singleton right sides,
+        // unless synthesize already split them
+        long started;
+        if (!split) {
+            started = phaseStarted("split");
+            applySplittingRule();
+            phaseFinished("split", started);
+        }
+
+        started = phaseStarted("redundancy");
+        if (parallelBasis) {
+            removeRedundantInParallel();
+        } else {
+            int loop = fds.size() - 1;
+            // check if all the fds are actually needed
+            for (int i = loop; i >= 0; i--) {
+
+                // the closures with and without the FD are the same
+                // exactly when the RHS is already in the closure without it,
+                // otherwise keep that FD in the minimal basis
+                if (getClosureEngine().implies(fds.leftSide(i), fds.rightSide(i), i)) {
+                    // only marked, positions do not change until the store is compacted
+                    fds.remove(i);
+                    getClosureEngine().disable(i);
+                    closureCache.invalidate();
+                }
+            }
+        }
+        // positions have shifted, so rebuild the engine on next use
+        fds.compact();
+        invalidateClosures();
+        phaseFinished("redundancy", started);
+
+        // makes sure all elements on leftSide are needed
+        started = phaseStarted("lhs");
+        if (parallelBasis) {
+            reduceLeftSidesInParallel();
+        } else {
+            checksForUnnecessaryElements();
+        }
+        phaseFinished("lhs", started);
+        if (keepBasis) {
+            basis = fds.copy();
+        }
+
+    }
+
+    /**
+     * The removeRedundantInParallel method removes
+     * the same FDs as the backward loop of FindMinBasis,
+     * testing a block of FDs at a time in parallel
+     * (see setParallelBasis).
+     */
+    private void removeRedundantInParallel() {
+        ClosureEngine engine = getClosureEngine();
+        // closure of each FD of the block that the snapshot implies, else null
+        AttributeSet[] implied = new AttributeSet[PARALLEL_BLOCK];
+        // whether the FD is implied even without the FDs above it in the block
+        boolean[] certain = new boolean[PARALLEL_BLOCK];
+        // FDs of the block removed so far
+        int[] removed = new int[PARALLEL_BLOCK];
+        for (int hi = fds.size() - 1; hi >= 0; hi -= PARALLEL_BLOCK) {
+            int top = hi;
+            int lo = Math.max(0, hi - PARALLEL_BLOCK + 1);
+            IntStream.rangeClosed(lo, hi).parallel().forEach(i -> {
+                AttributeSet lhs = fds.leftSide(i);
+                AttributeSet rhs = fds.rightSide(i);
+                AttributeSet closure = engine.closureUntil(lhs, rhs, i);
+                boolean redundant = closure.containsAll(rhs);
+                implied[top - i] = redundant ? closure : null;
+                // the sequential loop tests i with at least these FDs
+                certain[top - i] = redundant && engine.implies(lhs, rhs, i, top);
+            });
+
+            // take the results in the order of the sequential loop
+            int count = 0;
+            for (int i = hi; i >= lo; i--) {
+                AttributeSet closure = implied[hi - i];
+                if (closure == null) {
+                    continue;
+                }
+                // an FD whose LHS is not in the closure took no part in it
+                boolean valid = true;
+                if (!certain[hi - i]) {
+                    for (int k = 0; k < count && valid; k++) {
+                        valid = !closure.containsAll(fds.leftSide(removed[k]));
+                    }
+                }
+                if (valid || engine.implies(fds.leftSide(i), fds.rightSide(i), i)) {
+                    fds.remove(i);
+                    engine.disable(i);
+                    removed[count++] = i;
+                }
+            }
+            if (count > 0) {
+                closureCache.invalidate();
+            }
+        }
+    }
+
+    /**
+     * The reduceLeftSidesInParallel method drops the
+     * same LHS attributes as checksForUnnecessaryElements,
+     * testing the FDs in parallel (see setParallelBasis).
+     */
+    private void reduceLeftSidesInParallel() {
+        ClosureEngine engine = getClosureEngine();
+        AttributeSet[] reduced = new AttributeSet[fds.size()];
+        IntStream.range(0, fds.size()).parallel().filter(i -> fds.lhsSize(i) > 1).forEach(i -> {
+            AttributeSet original = fds.leftSide(i);
+            AttributeSet current = original;
+            for (int j : fds.leftSideInOrder(i)) {
+                AttributeSet difference = new AttributeSet(current);
+                difference.remove(j);
+                // the closure without j holds the closure with it exactly when it holds j
+                if (engine.implies(difference, AttributeSet.of(j), -1)) {
+                    current = difference;
+                }
+            }
+            if (current != original) {
+                reduced[i] = current;
+            }
+        });
+
+        // the engine follows the new sides, which change no closure
+        boolean changed = false;
+        for (int i = 0; i < reduced.length; i++) {
+            if (reduced[i] != null) {
+                fds.setLeftSide(i, reduced[i]);
+                engine.leftSideReduced(i);
+                changed = true;
+            }
+        }
+        if (changed) {
+            closureCache.invalidate();
+        }
+    }
+
+    /**
+     * The checksForUnnecessaryElements method
+     * verifies whether all the functional
+     * dependencies are needed.
+     */
+    private void checksForUnnecessaryElements() {
+        for (int i = 0; i < fds.size(); i++) {
+            if (fds.lhsSize(i) > 1) {
+                // walk the attributes of the original LHS in the
+                // order the original program did (see FDStore)
+                AttributeSet current = fds.leftSide(i);
+                for (int j : fds.leftSideInOrder(i)) {
+                    AttributeSet withE = FindClosure(current);
+                    AttributeSet difference = new AttributeSet(current);
+                    difference.remove(j);
+                    AttributeSet withoutE = FindClosure(difference);
+                    if (withoutE.containsAll(withE)) {
+                        current = difference;
+                        fds.setLeftSide(i, difference);
+                        getClosureEngine().leftSideReduced(i);
+                        closureCache.invalidate();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The applySplittingRule method
+     * will take a functional dependency
+     * of this form: X -> AB, and break it
+     * into two FD's: X -> A and X -> B.
+     */
+    void applySplittingRule() {
+        // the new FDs share the LHS of the FD they came from
+        fds.split();
+        invalidateClosures();
+        split = true;
+    }
+
+    /**
+     * The markSplit method tells the engine
+     * that its FDs are already split, so
+     * FindMinBasis neither splits them again
+     * nor reports a split phase.
+     */
+    void markSplit() {
+        split = true;
+    }
+
+    /**
+     * The getClosureEngine method returns
+     * the closure engine for the current FDs,
+     * building it if needed.
+     *
+     * @return the closure engine
+     */
+    private ClosureEngine getClosureEngine() {
+        if (closureEngine == null) {
+            closureEngine = new ClosureEngine(fds);
+            closureEngine.setListener(listener);
+        }
+        return closureEngine;
+    }
+
+    /**
+     * The phaseStarted method tells the
+     * listener that a phase starts.
+     *
+     * @param phase name of the phase
+     * @return start time, or 0 without a listener
+     */
+    private long phaseStarted(String phase) {
+        if (listener == null) {
+            return 0;
+        }
+        listener.phaseStarted(phase);
+        return System.nanoTime();
+    }
+
+    /**
+     * The phaseFinished method tells the
+     * listener how long a phase took and how
+     * many attribute sets the engine holds.
+     *
+     * @param phase   name of the phase
+     * @param started value phaseStarted returned
+     */
+    private void phaseFinished(String phase, long started) {
+        if (listener == null) {
+            return;
+        }
+        listener.phaseFinished(phase, System.nanoTime() - started);
+        listener.attributeSetsInUse(2 * closureCache.size());
+    }
+
+    /**
+     * The invalidateClosures method drops
+     * the closure engine and every cached closure.
+     * It is called whenever FDs move in the store.
+     */
+    private void invalidateClosures() {
+        closureEngine = null;
+        closureCache.invalidate();
+    }
+
+    /**
+     * The FindClosure method will
+     * add the right side of FD if
+     * left side of FD is in the closure
+     * and right side is not.
+     * It runs in time linear in the size
+     * of the FDs (see ClosureEngine), and
+     * closures seen before come from closureCache.
+     * 
+     * @param leftAtt a set of left side attributes
+     * @return a set of attributes obtained in closure
+     */
+    public AttributeSet FindClosure(AttributeSet leftAtt) {
+        AttributeSet closure = closureCache.get(leftAtt);
+        if (closure != null) {
+            // hand out a copy so callers can change it
+            return new AttributeSet(closure);
+        }
+        closure = getClosureEngine().closure(leftAtt);
+        closureCache.put(leftAtt, closure);
+        return closure;
+    }
+
+    /**
+     * The second FindClosure method does the same
+     * operation as the first FindClosure method
+     * It is an overloaded method with two parameters.
+     * The FD at the given index is left out.
+     * 
+     * @param leftAtt a set of left side attributes
+     * @param index   position of the FD in the array list
+     * @return a set of attributes in the closure
+     */
+    public AttributeSet FindClosure(AttributeSet leftAtt, int index) {
+        return getClosureEngine().closure(leftAtt, index);
+    }
+}
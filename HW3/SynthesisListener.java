@@ -0,0 +1,65 @@
+/**
+ * The SynthesisListener interface is told what
+ * a SynthesisEngine is doing while it decomposes.
+ * Every method does nothing by default, so a
+ * listener only overrides what it needs.
+ * Closures may be computed on several threads at
+ * once (see KeyFinder), so closureComputed must
+ * be safe to call from any thread.
+ * An engine without a listener does none of
+ * this bookkeeping.
+ *
+ * The phases are, in order:
+ * equivalence - collapsing equivalent attributes, if turned on
+ * split       - applySplittingRule
+ * components  - finding connected components, see ComponentSynthesis;
+ *               the phases from redundancy to partition then run
+ *               once for each component
+ * redundancy  - dropping redundant FDs in FindMinBasis
+ * lhs         - checksForUnnecessaryElements
+ * partition   - partitionMergeFDs
+ * key         - hasSuperKey
+ * subsumption - dropping relations contained in others
+ */
+
+public interface SynthesisListener {
+
+    /**
+     * Called when a phase starts.
+     *
+     * @param phase name of the phase
+     */
+    default void phaseStarted(String phase) {
+    }
+
+    /**
+     * Called when a phase ends.
+     *
+     * @param phase name of the phase
+     * @param nanos wall time the phase took
+     */
+    default void phaseFinished(String phase, long nanos) {
+    }
+
+    /**
+     * Called after every closure the ClosureEngine computes,
+     * whether in full or stopped early.
+     *
+     * @param fdVisits number of FD index entries scanned
+     * @param fired    number of FDs whose RHS joined the closure,
+     *                 one per step towards the fixpoint
+     */
+    default void closureComputed(int fdVisits, int fired) {
+    }
+
+    /**
+     * Called at the end of each phase with the number
+     * of attribute sets the engine holds, both sets of
+     * every cached closure. The FDs themselves are kept
+     * in an FDStore, not in attribute sets.
+     *
+     * @param count attribute sets held by the engine
+     */
+    default void attributeSetsInUse(int count) {
+    }
+}
@@ -0,0 +1,199 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The SynthesisServer class keeps one JVM running
+ * and decomposes file after file on request, so
+ * a build that needs hundreds of decompositions pays
+ * for class loading and JIT warm-up only once.
+ * Before it takes requests the server decomposes a
+ * number of files of generated FDs (see
+ * FDWorkloadGenerator) the way it decomposes requests,
+ * reading and all, to warm the engine up.
+ *
+ * Requests come one per line, on standard input or
+ * over a Unix domain socket:
+ * path  - decompose the file, answering with what a
+ *         single run prints for it (see BatchSynthesis)
+ * stats - answer with one line of JSON on the latency
+ *         of every file decomposed so far
+ * quit  - end the connection; on standard input the
+ *         server stops, as it does at end of input
+ * A file named stats or quit is asked for as ./stats or ./quit.
+ * Every answer ends with a line "# N us", where N is the
+ * time the request took in microseconds.
+ *
+ * Starting the server is still a cold start. An AppCDS
+ * archive makes it, and single runs, start faster:
+ * java -XX:ArchiveClassesAtExit=synthesis.jsa ModifiedSynthesis test1.txt
+ * writes the archive once, and
+ * java -XX:SharedArchiveFile=synthesis.jsa ModifiedSynthesis ...
+ * uses it.
+ */
+
+public class SynthesisServer {
+
+    // line that ends every answer, followed by the time taken
+    static final String END = "# ";
+
+    // time each file took, in nanoseconds
+    private long[] latencies = new long[1024];
+    // number of files decomposed
+    private int requests;
+
+    /**
+     * The serve method answers the requests of one
+     * connection until it ends or asks to quit.
+     *
+     * @param in  the requests, one per line
+     * @param out where the answers go
+     * @throws IOException if the connection fails
+     */
+    public void serve(BufferedReader in, PrintWriter out) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            String request = line.trim();
+            if (request.isEmpty()) {
+                continue;
+            }
+            if (request.equals("quit")) {
+                break;
+            }
+            long started = System.nanoTime();
+            String answer;
+            if (request.equals("stats")) {
+                answer = statsJson() + System.lineSeparator();
+            } else {
+                answer = BatchSynthesis.decompose(new File(request));
+                record(System.nanoTime() - started);
+            }
+            long nanos = System.nanoTime() - started;
+            out.print(answer);
+            out.print(END + nanos / 1000 + " us" + System.lineSeparator());
+            out.flush();
+        }
+    }
+
+    /**
+     * The listen method serves every connection to
+     * a Unix domain socket, each on a thread of its own
+     * from a bounded pool, until the program is stopped.
+     * A file left at the path is replaced.
+     *
+     * @param socket  path of the socket
+     * @param threads number of connections served at once
+     * @throws IOException if the socket cannot be opened
+     */
+    public void listen(Path socket, int threads) throws IOException {
+        Files.deleteIfExists(socket);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            // take the socket file away when the program is stopped
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> socket.toFile().delete()));
+            while (true) {
+                SocketChannel connection = server.accept();
+                pool.execute(() -> {
+                    try (SocketChannel channel = connection) {
+                        serve(new BufferedReader(new InputStreamReader(
+                                Channels.newInputStream(channel), StandardCharsets.UTF_8)),
+                                new PrintWriter(new OutputStreamWriter(
+                                        Channels.newOutputStream(channel), StandardCharsets.UTF_8)));
+                    } catch (IOException e) {
+                        // the client went away, nothing to answer
+                    }
+                });
+            }
+        } finally {
+            pool.shutdownNow();
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    /**
+     * The warmUp method decomposes files of generated
+     * FDs so that the JIT compiles the reading and the
+     * synthesis before the first real request.
+     *
+     * @param runs number of decompositions
+     * @throws IOException if the files cannot be written
+     */
+    public void warmUp(int runs) throws IOException {
+        FDWorkloadGenerator.Shape[] shapes = FDWorkloadGenerator.Shape.values();
+        File[] files = new File[shapes.length];
+        try {
+            for (int s = 0; s < shapes.length; s++) {
+                files[s] = File.createTempFile("synthesis-warmup", ".txt");
+                Files.writeString(files[s].toPath(),
+                        FDWorkloadGenerator.toText(FDWorkloadGenerator.generate(shapes[s], 24, 48, s)));
+            }
+            for (int run = 0; run < runs; run++) {
+                BatchSynthesis.decompose(files[run % files.length]);
+            }
+            statsJson();
+        } finally {
+            for (File file : files) {
+                if (file != null) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * The statsJson method writes the latency of
+     * the requests so far as one JSON object on a
+     * single line. Times are in microseconds.
+     *
+     * @return the JSON text
+     */
+    public synchronized String statsJson() {
+        long[] sorted = Arrays.copyOf(latencies, requests);
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long nanos : sorted) {
+            total += nanos;
+        }
+        StringBuilder sb = new StringBuilder("{\"requests\":").append(requests);
+        sb.append(",\"meanUs\":")
+                .append(String.format(Locale.ROOT, "%.1f", requests == 0 ? 0.0 : total / 1e3 / requests));
+        sb.append(",\"p50Us\":").append(percentile(sorted, 50));
+        sb.append(",\"p90Us\":").append(percentile(sorted, 90));
+        sb.append(",\"p99Us\":").append(percentile(sorted, 99));
+        sb.append(",\"maxUs\":").append(requests == 0 ? 0 : sorted[requests - 1] / 1000);
+        return sb.append('}').toString();
+    }
+
+    // remember the time one file took
+    private synchronized void record(long nanos) {
+        if (requests == latencies.length) {
+            latencies = Arrays.copyOf(latencies, latencies.length * 2);
+        }
+        latencies[requests++] = nanos;
+    }
+
+    // the given percentile of sorted times, in microseconds
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(sorted.length * percent / 100.0) - 1;
+        return sorted[Math.max(0, index)] / 1000;
+    }
+}
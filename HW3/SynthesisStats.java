@@ -0,0 +1,128 @@
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The SynthesisStats class is a SynthesisListener
+ * that adds up what one or more decompositions did:
+ * wall time per phase, closures computed, FD index
+ * entries scanned, FDs fired on the way to each
+ * fixpoint and the most attribute sets the closure
+ * cache held at the end of any phase.
+ * The totals are written out as a JSON object.
+ */
+
+public class SynthesisStats implements SynthesisListener {
+
+    // total wall time and number of runs of each phase, in the order first seen
+    private final Map<String, long[]> phases = new LinkedHashMap<String, long[]>();
+    // closures computed
+    private final LongAdder closures = new LongAdder();
+    // FD index entries scanned by all closures
+    private final LongAdder fdVisits = new LongAdder();
+    // FDs fired by all closures
+    private final LongAdder fired = new LongAdder();
+    // most attribute sets held by the closure cache at the end of a phase
+    private int maxCachedAttributeSets;
+
+    @Override
+    public synchronized void phaseFinished(String phase, long nanos) {
+        long[] total = phases.get(phase);
+        if (total == null) {
+            total = new long[2];
+            phases.put(phase, total);
+        }
+        total[0] += nanos;
+        total[1]++;
+    }
+
+    @Override
+    public void closureComputed(int visits, int fds) {
+        closures.increment();
+        fdVisits.add(visits);
+        fired.add(fds);
+    }
+
+    @Override
+    public synchronized void attributeSetsInUse(int count) {
+        maxCachedAttributeSets = Math.max(maxCachedAttributeSets, count);
+    }
+
+    /**
+     * @return number of closures computed
+     */
+    public long getClosures() {
+        return closures.sum();
+    }
+
+    /**
+     * @return number of FD index entries scanned by all closures
+     */
+    public long getFdVisits() {
+        return fdVisits.sum();
+    }
+
+    /**
+     * @return number of FDs fired by all closures
+     */
+    public long getFdsFired() {
+        return fired.sum();
+    }
+
+    /**
+     * @return most attribute sets held by the closure
+     *         cache at the end of any phase
+     */
+    public synchronized int getMaxCachedAttributeSets() {
+        return maxCachedAttributeSets;
+    }
+
+    /**
+     * The getPhaseNanos method returns the
+     * total wall time of one phase.
+     *
+     * @param phase name of the phase
+     * @return nanoseconds spent in the phase, 0 if it never ran
+     */
+    public synchronized long getPhaseNanos(String phase) {
+        long[] total = phases.get(phase);
+        return total == null ? 0 : total[0];
+    }
+
+    /**
+     * The toJson method writes the totals as one
+     * JSON object on a single line. Times are
+     * in milliseconds.
+     *
+     * @param cache closure cache whose counts are included, or null
+     * @return the JSON text
+     */
+    public synchronized String toJson(ClosureCache cache) {
+        StringBuilder sb = new StringBuilder("{\"phases\":{");
+        boolean first = true;
+        for (Map.Entry<String, long[]> e : phases.entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append('"').append(e.getKey()).append("\":{\"ms\":")
+                    .append(String.format(Locale.ROOT, "%.3f", e.getValue()[0] / 1e6))
+                    .append(",\"runs\":").append(e.getValue()[1]).append('}');
+        }
+        long count = getClosures();
+        long visits = getFdVisits();
+        sb.append("},\"closures\":").append(count);
+        sb.append(",\"fdVisits\":").append(visits);
+        sb.append(",\"fdVisitsPerClosure\":")
+                .append(String.format(Locale.ROOT, "%.2f", count == 0 ? 0.0 : (double) visits / count));
+        sb.append(",\"fdsFired\":").append(getFdsFired());
+        sb.append(",\"maxCachedAttributeSets\":").append(maxCachedAttributeSets);
+        if (cache != null) {
+            sb.append(",\"closureCache\":{\"hits\":").append(cache.getHits())
+                    .append(",\"misses\":").append(cache.getMisses())
+                    .append(",\"evictions\":").append(cache.getEvictions()).append('}');
+        }
+        return sb.append('}').toString();
+    }
+}